@@ -8,16 +8,21 @@ import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.provider.MediaStore;
 import android.view.View;
+import android.widget.CheckBox;
 import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.ProgressBar;
+import android.widget.RadioButton;
+import android.widget.RadioGroup;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
 import androidx.core.content.FileProvider;
@@ -27,36 +32,56 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.calmahahh.app.adapter.FoodAdapter;
+import com.calmahahh.app.adapter.FoodSearchAdapter;
 import com.calmahahh.app.api.ApiClient;
-import com.calmahahh.app.api.GeminiRequest;
+import com.calmahahh.app.backup.DatabaseBackup;
+import com.calmahahh.app.api.GeminiImageBody;
 import com.calmahahh.app.api.GeminiResponse;
 import com.calmahahh.app.db.AppDatabase;
+import com.calmahahh.app.db.DailyMacroBreakdown;
 import com.calmahahh.app.db.MealEntry;
 import com.calmahahh.app.db.MealEntryDao;
+import com.calmahahh.app.db.ScanCacheDao;
 import com.calmahahh.app.model.FoodItem;
-import com.calmahahh.app.model.MealLog;
 import com.calmahahh.app.model.UserProfile;
+import com.calmahahh.app.util.ImageEncoder;
 import com.calmahahh.app.util.ImageUtils;
 import com.calmahahh.app.util.NetworkUtils;
 import com.calmahahh.app.util.NutritionCalculator;
+import com.calmahahh.app.util.RetentionPolicy;
+import com.calmahahh.app.util.ScanCache;
+import com.calmahahh.app.util.ScanMetrics;
+import com.calmahahh.app.util.ScanSettings;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.navigation.NavigationView;
+import com.google.android.material.textfield.MaterialAutoCompleteTextView;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
 import com.calmahahh.app.notification.TaskNotificationManager;
 import com.calmahahh.app.util.DarkModeManager;
+import com.calmahahh.app.worker.DailySummaryRebuildWorker;
+import com.calmahahh.app.worker.MealCompactionWorker;
+import com.calmahahh.app.worker.MealLogMigrationWorker;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.TextStyle;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -82,6 +107,7 @@ public class MainActivity extends AppCompatActivity implements FoodAdapter.OnPor
     private MaterialButton btnCamera, btnGallery, btnAnalyze;
     private MaterialButton btnAddBreakfast, btnAddLunch, btnAddDinner;
     private EditText etFoodContext;
+    private MaterialAutoCompleteTextView etFoodSearch;
     private RecyclerView recyclerFood;
     private View loadingOverlay, layoutMealButtons;
     private TextView tvTotalCalories, tvTotalProtein, tvTotalCarbs, tvTotalFat, tvNoResults;
@@ -101,15 +127,21 @@ public class MainActivity extends AppCompatActivity implements FoodAdapter.OnPor
     private final Gson gson = new Gson();
     private UserProfile userProfile;
     private MealEntryDao mealEntryDao;
+    private ScanCacheDao scanCacheDao;
 
     // --- Threading ---
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(); // network calls
+    private final Executor dbRead = AppDatabase.readExecutor();
+    private final Executor dbWrite = AppDatabase.writeExecutor();
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     // --- Activity-result launchers ---
     private ActivityResultLauncher<Intent> cameraLauncher;
     private ActivityResultLauncher<Intent> galleryLauncher;
     private ActivityResultLauncher<String> permissionLauncher;
+    private ActivityResultLauncher<String> exportLauncher;
+    private ActivityResultLauncher<String> exportBinaryLauncher;
+    private ActivityResultLauncher<String[]> restoreLauncher;
 
     // --- Gemini prompt ---
     private static final String GEMINI_PROMPT =
@@ -161,10 +193,21 @@ public class MainActivity extends AppCompatActivity implements FoodAdapter.OnPor
 
         setContentView(R.layout.activity_main);
         userProfile = UserProfile.load(this);
-        mealEntryDao = AppDatabase.getInstance(this).mealEntryDao();
+        AppDatabase db = AppDatabase.getInstance(this);
+        mealEntryDao = db.mealEntryDao();
+        scanCacheDao = db.scanCacheDao();
 
         // Initialize notification channel for planner reminders
         TaskNotificationManager.createNotificationChannel(this);
+        // Replace alarms left under task ids from before the day-mask migration
+        TaskNotificationManager.upgradeLegacyReminders(this);
+
+        // Keep daily_summary verified against raw meal entries
+        DailySummaryRebuildWorker.schedule(this);
+        // Fold old meal entries per the retention setting
+        MealCompactionWorker.schedule(this);
+        // Move any meals still in the old SharedPreferences log into Room
+        MealLogMigrationWorker.schedule(this);
 
         initViews();
         initLaunchers();
@@ -207,6 +250,7 @@ public class MainActivity extends AppCompatActivity implements FoodAdapter.OnPor
         btnGallery      = findViewById(R.id.btnGallery);
         btnAnalyze      = findViewById(R.id.btnAnalyze);
         etFoodContext    = findViewById(R.id.etFoodContext);
+        etFoodSearch     = findViewById(R.id.etFoodSearch);
         recyclerFood    = findViewById(R.id.recyclerFood);
         loadingOverlay  = findViewById(R.id.loadingOverlay);
         tvTotalCalories = findViewById(R.id.tvTotalCalories);
@@ -286,12 +330,109 @@ public class MainActivity extends AppCompatActivity implements FoodAdapter.OnPor
                     }
                 }
         );
+
+        exportLauncher = registerForActivityResult(
+                new ActivityResultContracts.CreateDocument("application/x-ndjson"),
+                uri -> {
+                    if (uri != null) exportBackup(uri, false);
+                }
+        );
+
+        exportBinaryLauncher = registerForActivityResult(
+                new ActivityResultContracts.CreateDocument("application/octet-stream"),
+                uri -> {
+                    if (uri != null) exportBackup(uri, true);
+                }
+        );
+
+        restoreLauncher = registerForActivityResult(
+                new ActivityResultContracts.OpenDocument(),
+                uri -> {
+                    if (uri != null) confirmRestore(uri);
+                }
+        );
+    }
+
+    private void chooseExportFormat() {
+        String name = "calmahahh-backup-" + LocalDate.now();
+        new AlertDialog.Builder(this)
+                .setTitle("Export Backup")
+                .setItems(new String[]{"Compact (smallest file)", "Readable text (NDJSON)"}, (dialog, which) -> {
+                    if (which == 0) {
+                        exportBinaryLauncher.launch(name + ".cmbk");
+                    } else {
+                        exportLauncher.launch(name + ".ndjson");
+                    }
+                })
+                .show();
+    }
+
+    private void exportBackup(Uri uri, boolean binary) {
+        dbWrite.execute(() -> {
+            String message;
+            try (OutputStream out = getContentResolver().openOutputStream(uri)) {
+                if (out == null) throw new IOException("Cannot open " + uri);
+                long rows = binary
+                        ? DatabaseBackup.exportBinary(this, out)
+                        : DatabaseBackup.exportNdjson(this, out);
+                message = "Exported " + rows + " records";
+            } catch (IOException e) {
+                message = "Export failed: " + e.getMessage();
+            }
+            String result = message;
+            mainHandler.post(() -> Toast.makeText(this, result, Toast.LENGTH_LONG).show());
+        });
+    }
+
+    private void confirmRestore(Uri uri) {
+        new AlertDialog.Builder(this)
+                .setTitle("Restore Backup")
+                .setMessage("This replaces all meals, plans and history on this device with the backup.")
+                .setPositiveButton("Restore", (dialog, which) -> dbWrite.execute(() -> {
+                    String message;
+                    try (InputStream in = getContentResolver().openInputStream(uri)) {
+                        if (in == null) throw new IOException("Cannot open " + uri);
+                        long rows = DatabaseBackup.restore(this, in);
+                        message = "Restored " + rows + " records";
+                    } catch (IOException e) {
+                        message = "Restore failed: " + e.getMessage();
+                    }
+                    String result = message;
+                    mainHandler.post(() -> {
+                        Toast.makeText(this, result, Toast.LENGTH_LONG).show();
+                        refreshDailyProgress();
+                    });
+                }))
+                .setNegativeButton("Cancel", null)
+                .show();
     }
 
     private void setupRecyclerView() {
         foodAdapter = new FoodAdapter(foodItems, this);
         recyclerFood.setLayoutManager(new LinearLayoutManager(this));
         recyclerFood.setAdapter(foodAdapter);
+
+        // Past foods: picking one adds it to the current meal without a new scan
+        etFoodSearch.setAdapter(new FoodSearchAdapter(this, mealEntryDao));
+        etFoodSearch.setOnItemClickListener((parent, view, position, id) -> {
+            MealEntry past = (MealEntry) parent.getItemAtPosition(position);
+            addPastFood(past);
+            etFoodSearch.setText("");
+        });
+    }
+
+    /** Re-adds a previously logged food using its stored macros and portion */
+    private void addPastFood(MealEntry past) {
+        double grams = past.grams > 0 ? past.grams : 100;
+        double scale = 100.0 / grams;
+        foodItems.add(new FoodItem(past.foodName,
+                past.calories * scale, past.protein * scale,
+                past.carbs * scale, past.fat * scale,
+                grams, 1.0));
+        foodAdapter.notifyItemInserted(foodItems.size() - 1);
+        tvNoResults.setVisibility(View.GONE);
+        updateTotals();
+        layoutMealButtons.setVisibility(View.VISIBLE);
     }
 
     private void setupClickListeners() {
@@ -310,10 +451,17 @@ public class MainActivity extends AppCompatActivity implements FoodAdapter.OnPor
             } else if (id == R.id.nav_calorie_stats) {
                 startActivity(new Intent(this, StatsActivity.class));
             } else if (id == R.id.nav_meals) {
-                Intent intent = new Intent(this, MealDetailActivity.class);
-                String today = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date());
-                intent.putExtra("date", today);
-                startActivity(intent);
+                startActivity(new Intent(this, MealDetailActivity.class));
+            } else if (id == R.id.nav_meal_history) {
+                startActivity(new Intent(this, MealHistoryActivity.class));
+            } else if (id == R.id.nav_scan_quality) {
+                showScanQualityDialog();
+            } else if (id == R.id.nav_retention) {
+                showRetentionDialog();
+            } else if (id == R.id.nav_export_backup) {
+                chooseExportFormat();
+            } else if (id == R.id.nav_import_backup) {
+                restoreLauncher.launch(new String[]{"*/*"});
             } else if (id == R.id.nav_edit_profile) {
                 startActivity(new Intent(this, SurveyActivity.class));
             } else if (id == R.id.nav_dark_mode) {
@@ -349,10 +497,7 @@ public class MainActivity extends AppCompatActivity implements FoodAdapter.OnPor
         // Navigation buttons
         btnStats.setOnClickListener(v -> startActivity(new Intent(this, StatsActivity.class)));
         btnMeals.setOnClickListener(v -> {
-            Intent intent = new Intent(this, MealDetailActivity.class);
-            String today = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date());
-            intent.putExtra("date", today);
-            startActivity(intent);
+            startActivity(new Intent(this, MealDetailActivity.class));
         });
 
         // Edit profile
@@ -363,6 +508,69 @@ public class MainActivity extends AppCompatActivity implements FoodAdapter.OnPor
         });
     }
 
+    private void showScanQualityDialog() {
+        View dialogView = getLayoutInflater().inflate(R.layout.dialog_scan_quality, null);
+        RadioGroup radioGroup = dialogView.findViewById(R.id.radioGroupScanQuality);
+        CheckBox cbCrop = dialogView.findViewById(R.id.cbCropCenter);
+        TextView tvStats = dialogView.findViewById(R.id.tvScanStats);
+
+        ScanSettings settings = ScanSettings.load(this);
+        for (int level = 0; level < ScanSettings.LEVEL_NAMES.length; level++) {
+            RadioButton option = new RadioButton(this);
+            option.setId(View.generateViewId());
+            option.setTag(level);
+            option.setText(ScanSettings.describeLevel(level));
+            radioGroup.addView(option);
+            if (level == settings.level) option.setChecked(true);
+        }
+        cbCrop.setChecked(settings.cropToCenter);
+
+        String stats = ScanMetrics.describe(this);
+        tvStats.setVisibility(stats != null ? View.VISIBLE : View.GONE);
+        tvStats.setText(stats);
+
+        new AlertDialog.Builder(this)
+                .setView(dialogView)
+                .setPositiveButton("Save", (dialog, which) -> {
+                    RadioButton checked = radioGroup.findViewById(radioGroup.getCheckedRadioButtonId());
+                    int level = checked != null ? (int) checked.getTag() : settings.level;
+                    if (level != settings.level || cbCrop.isChecked() != settings.cropToCenter) {
+                        ScanSettings.save(this, level, cbCrop.isChecked());
+                        // Averages should describe the new settings only
+                        ScanMetrics.reset(this);
+                    }
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void showRetentionDialog() {
+        View dialogView = getLayoutInflater().inflate(R.layout.dialog_retention, null);
+        RadioGroup radioGroup = dialogView.findViewById(R.id.radioGroupRetention);
+        CheckBox cbArchive = dialogView.findViewById(R.id.cbArchive);
+
+        RetentionPolicy policy = RetentionPolicy.load(this);
+        for (int months : RetentionPolicy.MONTH_OPTIONS) {
+            RadioButton option = new RadioButton(this);
+            option.setId(View.generateViewId());
+            option.setTag(months);
+            option.setText(months == 0 ? "Keep everything" : "Compact after " + months + " months");
+            radioGroup.addView(option);
+            if (months == policy.months) option.setChecked(true);
+        }
+        cbArchive.setChecked(policy.archive);
+
+        new AlertDialog.Builder(this)
+                .setView(dialogView)
+                .setPositiveButton("Save", (dialog, which) -> {
+                    RadioButton checked = radioGroup.findViewById(radioGroup.getCheckedRadioButtonId());
+                    int months = checked != null ? (int) checked.getTag() : policy.months;
+                    RetentionPolicy.save(this, months, cbArchive.isChecked());
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
     private void addMealAndRefresh(String mealType) {
         if (foodItems.isEmpty()) {
             showError("Scan food first before adding a meal");
@@ -370,19 +578,19 @@ public class MainActivity extends AppCompatActivity implements FoodAdapter.OnPor
         }
 
         // Save to Room DB
-        String today = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date());
-        executor.execute(() -> {
+        LocalDate today = LocalDate.now();
+        int target = userProfile.getTargetCalories();
+        dbWrite.execute(() -> {
+            List<MealEntry> entries = new ArrayList<>();
             for (FoodItem item : foodItems) {
-                MealEntry entry = new MealEntry(
+                entries.add(new MealEntry(
                         today, mealType, item.getName(),
                         item.getCalculatedCalories(), item.getCalculatedProtein(),
                         item.getCalculatedCarbs(), item.getCalculatedFat(),
-                        item.getGrams());
-                mealEntryDao.insert(entry);
+                        item.getGrams()));
             }
-            // Also save to SharedPreferences for backward compat
+            mealEntryDao.insertAllAndSummarize(entries, target);
             mainHandler.post(() -> {
-                MealLog.addMealByName(this, mealType, foodItems);
                 Toast.makeText(this, "Added to " + mealType + "!", Toast.LENGTH_SHORT).show();
                 refreshDailyProgress();
             });
@@ -420,10 +628,6 @@ public class MainActivity extends AppCompatActivity implements FoodAdapter.OnPor
             showError("Please capture or select an image first");
             return;
         }
-        if (!NetworkUtils.isNetworkAvailable(this)) {
-            showError("No internet connection. Please check your network and try again.");
-            return;
-        }
 
         String apiKey = Constants.GEMINI_API_KEY;
         if (apiKey == null || apiKey.isEmpty() || apiKey.equals("YOUR_GEMINI_API_KEY_HERE") || apiKey.equals("PASTE_YOUR_NEW_API_KEY_HERE")) {
@@ -436,80 +640,157 @@ public class MainActivity extends AppCompatActivity implements FoodAdapter.OnPor
 
         // Get optional user context
         String userContext = etFoodContext.getText().toString().trim();
+        final String cacheContext = ScanCache.normalizeContext(userContext);
         if (userContext.isEmpty()) {
             userContext = "No additional context provided. Estimate everything from the image.";
         }
 
         final String prompt = String.format(GEMINI_PROMPT, userContext);
+        final Bitmap bitmap = capturedBitmap;
 
         executor.execute(() -> {
             try {
-                // 1. Encode image to base64
-                String base64 = ImageUtils.bitmapToBase64(capturedBitmap, 80);
-
-                // 2. Send to Gemini Vision AI
-                GeminiRequest request = GeminiRequest.create(prompt, base64);
-                Response<GeminiResponse> response = ApiClient.getGeminiService()
-                        .generateContent(apiKey, request)
-                        .execute();
-
-                if (!response.isSuccessful() || response.body() == null) {
-                    String errorMsg = "Gemini API error (HTTP " + response.code() + ")";
-                    if (response.code() == 400) {
-                        errorMsg = "Invalid request format. Server rejected the request.";
-                    } else if (response.code() == 401 || response.code() == 403) {
-                        errorMsg = "Invalid API key. Check your Gemini API key in Constants.java";
-                    } else if (response.code() == 404) {
-                        errorMsg = "API endpoint not found. Gemini API might be unavailable.";
-                    } else if (response.code() == 429) {
-                        errorMsg = "Rate limit reached (15 req/min). Wait a moment and try again.";
-                    } else if (response.code() == 500) {
-                        errorMsg = "Gemini server error. Try again in a moment.";
-                    }
-                    
-                    // Log the error response for debugging
-                    try {
-                        if (response.errorBody() != null) {
-                            String error = response.errorBody().string();
-                            android.util.Log.e("GeminiAPI", "Error: " + error);
-                        }
-                    } catch (Exception ignored) {}
-                    
-                    postError(errorMsg);
+                // 0. A repeat of an earlier scan needs no upload
+                long imageHash = ImageUtils.dHash(bitmap);
+                List<FoodItem> cached = ScanCache.get(scanCacheDao, imageHash, cacheContext);
+                if (cached != null) {
+                    mainHandler.post(() -> showDetected(cached));
                     return;
                 }
-
-                // 3. Parse the AI response
-                String jsonText = response.body().getText();
-                if (jsonText == null || jsonText.isEmpty()) {
-                    postError("AI returned empty response. Try a clearer photo.");
+                ScanCache.Match similar = ScanCache.findSimilar(scanCacheDao, imageHash);
+                if (similar != null) {
+                    mainHandler.post(() -> offerSimilarScan(similar, imageHash, cacheContext,
+                            () -> executor.execute(() ->
+                                    requestAnalysis(apiKey, prompt, bitmap, imageHash, cacheContext))));
                     return;
                 }
+                requestAnalysis(apiKey, prompt, bitmap, imageHash, cacheContext);
+            } catch (Exception e) {
+                postError("Error: " + e.getMessage());
+            }
+        });
+    }
 
-                List<FoodItem> detected = parseGeminiResponse(jsonText);
+    /**
+     * Offers the results of a past scan of what looks like the same plate.
+     * Declining runs the normal Gemini request.
+     */
+    private void offerSimilarScan(ScanCache.Match similar, long imageHash, String cacheContext,
+                                  Runnable scanAnyway) {
+        showLoading(false);
+        double calories = NutritionCalculator.calculateTotalCalories(similar.foods);
+        StringBuilder names = new StringBuilder();
+        for (FoodItem item : similar.foods) {
+            if (names.length() > 0) names.append(", ");
+            names.append(item.getName());
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Looks like your meal from " + describeScanDay(similar.scannedAt))
+                .setMessage(String.format(Locale.US, "%s\n%.0f kcal\n\nUse these results?", names, calories))
+                .setCancelable(false)
+                .setPositiveButton("Use it", (d, w) -> {
+                    // Remember the answer so the same photo is an exact hit next time
+                    ScanCache.put(scanCacheDao, imageHash, cacheContext, similar.foods);
+                    showDetected(similar.foods);
+                })
+                .setNegativeButton("Scan anyway", (d, w) -> {
+                    showLoading(true);
+                    scanAnyway.run();
+                })
+                .show();
+    }
 
-                // 4. Deliver results to UI
-                mainHandler.post(() -> {
-                    showLoading(false);
-                    if (detected.isEmpty()) {
-                        tvNoResults.setVisibility(View.VISIBLE);
-                        tvNoResults.setText("No food items detected. Try a clearer photo.");
-                        layoutMealButtons.setVisibility(View.GONE);
-                    } else {
-                        foodItems.clear();
-                        foodItems.addAll(detected);
-                        foodAdapter.notifyDataSetChanged();
-                        updateTotals();
-                        layoutMealButtons.setVisibility(View.VISIBLE);
+    private static String describeScanDay(long scannedAt) {
+        LocalDate day = Instant.ofEpochMilli(scannedAt).atZone(ZoneId.systemDefault()).toLocalDate();
+        LocalDate today = LocalDate.now();
+        if (day.equals(today)) return "earlier today";
+        if (day.equals(today.minusDays(1))) return "yesterday";
+        if (day.isAfter(today.minusDays(7))) return day.getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.US);
+        return day.format(DateTimeFormatter.ofPattern("MMM d", Locale.US));
+    }
+
+    /** Uploads the photo to Gemini and shows the parsed foods. Runs on the network executor. */
+    private void requestAnalysis(String apiKey, String prompt, Bitmap bitmap,
+                                 long imageHash, String cacheContext) {
+        try {
+            if (!NetworkUtils.isNetworkAvailable(this)) {
+                postError("No internet connection. Please check your network and try again.");
+                return;
+            }
+
+            // 1. Encode within the upload budget; Base64 happens as the request is written
+            ImageEncoder.Result image = ImageEncoder.encode(bitmap, ScanSettings.load(this));
+            GeminiImageBody request = GeminiImageBody.create(prompt, image.mimeType, image.bytes, image.length);
+
+            // 2. Send to Gemini Vision AI
+            long sentAt = SystemClock.elapsedRealtime();
+            Response<GeminiResponse> response = ApiClient.getGeminiService()
+                    .generateContent(apiKey, request)
+                    .execute();
+
+            if (!response.isSuccessful() || response.body() == null) {
+                String errorMsg = "Gemini API error (HTTP " + response.code() + ")";
+                if (response.code() == 400) {
+                    errorMsg = "Invalid request format. Server rejected the request.";
+                } else if (response.code() == 401 || response.code() == 403) {
+                    errorMsg = "Invalid API key. Check your Gemini API key in Constants.java";
+                } else if (response.code() == 404) {
+                    errorMsg = "API endpoint not found. Gemini API might be unavailable.";
+                } else if (response.code() == 429) {
+                    errorMsg = "Rate limit reached (15 req/min). Wait a moment and try again.";
+                } else if (response.code() == 500) {
+                    errorMsg = "Gemini server error. Try again in a moment.";
+                }
+                
+                // Log the error response for debugging
+                try {
+                    if (response.errorBody() != null) {
+                        String error = response.errorBody().string();
+                        android.util.Log.e("GeminiAPI", "Error: " + error);
                     }
-                });
+                } catch (Exception ignored) {}
+                
+                postError(errorMsg);
+                return;
+            }
 
-            } catch (IOException e) {
-                postError("Network error: " + e.getMessage());
-            } catch (Exception e) {
-                postError("Error: " + e.getMessage());
+            ScanMetrics.record(this, image, SystemClock.elapsedRealtime() - sentAt);
+
+            // 3. Parse the AI response
+            String jsonText = response.body().getText();
+            if (jsonText == null || jsonText.isEmpty()) {
+                postError("AI returned empty response. Try a clearer photo.");
+                return;
             }
-        });
+
+            List<FoodItem> detected = parseGeminiResponse(jsonText);
+            if (!detected.isEmpty()) {
+                ScanCache.put(scanCacheDao, imageHash, cacheContext, detected);
+            }
+
+            // 4. Deliver results to UI
+            mainHandler.post(() -> showDetected(detected));
+
+        } catch (IOException e) {
+            postError("Network error: " + e.getMessage());
+        } catch (Exception e) {
+            postError("Error: " + e.getMessage());
+        }
+    }
+
+    private void showDetected(List<FoodItem> detected) {
+        showLoading(false);
+        if (detected.isEmpty()) {
+            tvNoResults.setVisibility(View.VISIBLE);
+            tvNoResults.setText("No food items detected. Try a clearer photo.");
+            layoutMealButtons.setVisibility(View.GONE);
+        } else {
+            foodItems.clear();
+            foodItems.addAll(detected);
+            foodAdapter.notifyDataSetChanged();
+            updateTotals();
+            layoutMealButtons.setVisibility(View.VISIBLE);
+        }
     }
 
     /**
@@ -626,22 +907,14 @@ public class MainActivity extends AppCompatActivity implements FoodAdapter.OnPor
         if (userProfile == null) return;
 
         int target = userProfile.getTargetCalories();
-        String today = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date());
-
-        executor.execute(() -> {
-            double consumed = mealEntryDao.getTotalCaloriesForDate(today);
-            double breakfastCal = mealEntryDao.getMealCalories(today, Constants.MEAL_BREAKFAST);
-            double lunchCal = mealEntryDao.getMealCalories(today, Constants.MEAL_LUNCH);
-            double dinnerCal = mealEntryDao.getMealCalories(today, Constants.MEAL_DINNER);
-
-            // Fall back to SharedPreferences if Room is empty
-            if (consumed == 0) {
-                MealLog.DailyLog log = MealLog.loadToday(this);
-                consumed = log.getTotalCalories();
-                breakfastCal = log.getMealCalories(Constants.MEAL_BREAKFAST);
-                lunchCal = log.getMealCalories(Constants.MEAL_LUNCH);
-                dinnerCal = log.getMealCalories(Constants.MEAL_DINNER);
-            }
+        LocalDate today = LocalDate.now();
+
+        dbRead.execute(() -> {
+            DailyMacroBreakdown breakdown = mealEntryDao.getDailyMacroBreakdown(today);
+            double consumed = breakdown.getTotalCalories();
+            double breakfastCal = breakdown.getMealCalories(Constants.MEAL_BREAKFAST);
+            double lunchCal = breakdown.getMealCalories(Constants.MEAL_LUNCH);
+            double dinnerCal = breakdown.getMealCalories(Constants.MEAL_DINNER);
 
             double remaining = Math.max(0, target - consumed);
             final double c = consumed, bc = breakfastCal, lc = lunchCal, dc = dinnerCal, r = remaining;
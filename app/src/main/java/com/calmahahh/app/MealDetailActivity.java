@@ -16,18 +16,22 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.calmahahh.app.adapter.MealEntryAdapter;
 import com.calmahahh.app.db.AppDatabase;
+import com.calmahahh.app.db.DailyMacroBreakdown;
 import com.calmahahh.app.db.MealEntry;
 import com.calmahahh.app.db.MealEntryDao;
+import com.calmahahh.app.db.TableWatcher;
 import com.calmahahh.app.model.UserProfile;
+import com.calmahahh.app.util.CalorieStreak;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 
 /**
  * Displays and manages meal entries for a specific date.
@@ -36,10 +40,14 @@ import java.util.concurrent.Executors;
  */
 public class MealDetailActivity extends AppCompatActivity implements MealEntryAdapter.OnEntryActionListener {
 
-    private String date;
+    /** Day to show, as an epoch day; defaults to today when absent */
+    public static final String EXTRA_EPOCH_DAY = "epoch_day";
+
+    private LocalDate date;
     private MealEntryDao mealEntryDao;
     private UserProfile userProfile;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Executor dbRead = AppDatabase.readExecutor();
+    private final Executor dbWrite = AppDatabase.writeExecutor();
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     private TextView tvDate, tvDayTotal, tvDayStatus;
@@ -52,23 +60,15 @@ public class MealDetailActivity extends AppCompatActivity implements MealEntryAd
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_meal_detail);
 
-        date = getIntent().getStringExtra("date");
-        if (date == null) {
-            date = new SimpleDateFormat("yyyy-MM-dd", Locale.US)
-                    .format(new java.util.Date());
-        }
+        long epochDay = getIntent().getLongExtra(EXTRA_EPOCH_DAY, LocalDate.now().toEpochDay());
+        date = LocalDate.ofEpochDay(epochDay);
 
-        mealEntryDao = AppDatabase.getInstance(this).mealEntryDao();
+        AppDatabase db = AppDatabase.getInstance(this);
+        mealEntryDao = db.mealEntryDao();
         userProfile = UserProfile.load(this);
 
         initViews();
-        loadMeals();
-    }
-
-    @Override
-    protected void onResume() {
-        super.onResume();
-        loadMeals();
+        TableWatcher.watch(this, db, this::loadMeals, "meal_entries");
     }
 
     private void initViews() {
@@ -81,12 +81,7 @@ public class MealDetailActivity extends AppCompatActivity implements MealEntryAd
         tvDayStatus = findViewById(R.id.tvDayStatus);
 
         // Format display date
-        try {
-            java.util.Date d = new SimpleDateFormat("yyyy-MM-dd", Locale.US).parse(date);
-            tvDate.setText(new SimpleDateFormat("EEEE, MMMM d, yyyy", Locale.US).format(d));
-        } catch (Exception e) {
-            tvDate.setText(date);
-        }
+        tvDate.setText(date.format(DateTimeFormatter.ofPattern("EEEE, MMMM d, yyyy", Locale.US)));
 
         // Breakfast
         rvBreakfast = findViewById(R.id.rvBreakfast);
@@ -116,20 +111,28 @@ public class MealDetailActivity extends AppCompatActivity implements MealEntryAd
     }
 
     private void loadMeals() {
-        executor.execute(() -> {
-            List<MealEntry> breakfast = mealEntryDao.getEntriesForMeal(date, "Breakfast");
-            List<MealEntry> lunch = mealEntryDao.getEntriesForMeal(date, "Lunch");
-            List<MealEntry> dinner = mealEntryDao.getEntriesForMeal(date, "Dinner");
-            double totalCal = mealEntryDao.getTotalCaloriesForDate(date);
+        dbRead.execute(() -> {
+            // One scan for the rows (split by meal here) and one grouped query for the totals
+            List<MealEntry> entries = mealEntryDao.getEntriesForDate(date);
+            DailyMacroBreakdown breakdown = mealEntryDao.getDailyMacroBreakdown(date);
+            List<MealEntry> breakfast = new ArrayList<>();
+            List<MealEntry> lunch = new ArrayList<>();
+            List<MealEntry> dinner = new ArrayList<>();
+            for (MealEntry e : entries) {
+                if (Constants.MEAL_BREAKFAST.equals(e.mealType)) breakfast.add(e);
+                else if (Constants.MEAL_LUNCH.equals(e.mealType)) lunch.add(e);
+                else if (Constants.MEAL_DINNER.equals(e.mealType)) dinner.add(e);
+            }
+            double totalCal = breakdown.getTotalCalories();
 
             mainHandler.post(() -> {
                 breakfastAdapter.setEntries(breakfast);
                 lunchAdapter.setEntries(lunch);
                 dinnerAdapter.setEntries(dinner);
 
-                tvBreakfastTotal.setText(String.format(Locale.US, "%.0f kcal", breakfastAdapter.getTotalCalories()));
-                tvLunchTotal.setText(String.format(Locale.US, "%.0f kcal", lunchAdapter.getTotalCalories()));
-                tvDinnerTotal.setText(String.format(Locale.US, "%.0f kcal", dinnerAdapter.getTotalCalories()));
+                tvBreakfastTotal.setText(String.format(Locale.US, "%.0f kcal", breakdown.getMealCalories(Constants.MEAL_BREAKFAST)));
+                tvLunchTotal.setText(String.format(Locale.US, "%.0f kcal", breakdown.getMealCalories(Constants.MEAL_LUNCH)));
+                tvDinnerTotal.setText(String.format(Locale.US, "%.0f kcal", breakdown.getMealCalories(Constants.MEAL_DINNER)));
 
                 tvDayTotal.setText(String.format(Locale.US, "Total: %.0f / %d kcal", totalCal, userProfile.getTargetCalories()));
 
@@ -174,9 +177,9 @@ public class MealDetailActivity extends AppCompatActivity implements MealEntryAd
                     double grams = parseDouble(etGrams.getText().toString(), 100);
 
                     MealEntry entry = new MealEntry(date, mealType, name, cal, pro, carbs, fat, grams);
-                    executor.execute(() -> {
-                        mealEntryDao.insert(entry);
-                        mainHandler.post(this::loadMeals);
+                    dbWrite.execute(() -> {
+                        mealEntryDao.insertAndSummarize(entry, userProfile.getTargetCalories());
+                        onDayChanged();
                     });
                 })
                 .setNegativeButton("Cancel", null)
@@ -212,9 +215,9 @@ public class MealDetailActivity extends AppCompatActivity implements MealEntryAd
                     entry.fat = parseDouble(etFat.getText().toString(), 0);
                     entry.grams = parseDouble(etGrams.getText().toString(), 100);
 
-                    executor.execute(() -> {
-                        mealEntryDao.update(entry);
-                        mainHandler.post(this::loadMeals);
+                    dbWrite.execute(() -> {
+                        mealEntryDao.updateAndSummarize(entry, userProfile.getTargetCalories());
+                        onDayChanged();
                     });
                 })
                 .setNegativeButton("Cancel", null)
@@ -227,15 +230,23 @@ public class MealDetailActivity extends AppCompatActivity implements MealEntryAd
                 .setTitle("Delete Entry")
                 .setMessage("Remove " + entry.foodName + "?")
                 .setPositiveButton("Delete", (dialog, which) -> {
-                    executor.execute(() -> {
-                        mealEntryDao.delete(entry);
-                        mainHandler.post(this::loadMeals);
+                    dbWrite.execute(() -> {
+                        mealEntryDao.deleteAndSummarize(entry, userProfile.getTargetCalories());
+                        onDayChanged();
                     });
                 })
                 .setNegativeButton("Cancel", null)
                 .show();
     }
 
+    /** Keeps derived stats current; runs on the write executor after each edit */
+    private void onDayChanged() {
+        // Edits to an earlier day can break or join the cached streak run
+        if (!date.equals(LocalDate.now())) {
+            CalorieStreak.invalidate(this);
+        }
+    }
+
     private double parseDouble(String s, double defaultVal) {
         try {
             return Double.parseDouble(s.trim());
@@ -243,10 +254,4 @@ public class MealDetailActivity extends AppCompatActivity implements MealEntryAd
             return defaultVal;
         }
     }
-
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        executor.shutdown();
-    }
 }
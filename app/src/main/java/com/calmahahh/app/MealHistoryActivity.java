@@ -0,0 +1,105 @@
+package com.calmahahh.app;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.calmahahh.app.adapter.MealHistoryAdapter;
+import com.calmahahh.app.db.AppDatabase;
+import com.calmahahh.app.db.MealEntry;
+import com.calmahahh.app.db.MealEntryDao;
+import com.calmahahh.app.db.TableWatcher;
+import com.google.android.material.appbar.MaterialToolbar;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Scrollable history of every logged food entry, newest first.
+ * Entries are paged from the database so memory use does not grow with history length.
+ * Tapping an entry opens that day's meals.
+ */
+public class MealHistoryActivity extends AppCompatActivity
+        implements MealHistoryAdapter.PageLoader, MealHistoryAdapter.OnEntryClickListener {
+
+    private MealEntryDao mealEntryDao;
+    private final Executor dbRead = AppDatabase.readExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private MealHistoryAdapter adapter;
+    private TextView tvNoHistory;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_meal_history);
+
+        MaterialToolbar toolbar = findViewById(R.id.toolbar);
+        toolbar.setNavigationOnClickListener(v -> finish());
+
+        AppDatabase db = AppDatabase.getInstance(this);
+        mealEntryDao = db.mealEntryDao();
+
+        tvNoHistory = findViewById(R.id.tvNoHistory);
+        RecyclerView recyclerHistory = findViewById(R.id.recyclerHistory);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        layoutManager.setInitialPrefetchItemCount(MealHistoryAdapter.PAGE_SIZE / 2);
+        recyclerHistory.setLayoutManager(layoutManager);
+        recyclerHistory.setHasFixedSize(true);
+        adapter = new MealHistoryAdapter(this, this);
+        recyclerHistory.setAdapter(adapter);
+
+        TableWatcher.watch(this, db, this::loadHistory, "meal_entries");
+    }
+
+    private void loadHistory() {
+        dbRead.execute(() -> {
+            int count = mealEntryDao.getEntryCount();
+            mainHandler.post(() -> {
+                tvNoHistory.setVisibility(count == 0 ? View.VISIBLE : View.GONE);
+                adapter.reset(count);
+            });
+        });
+    }
+
+    @Override
+    public void loadAfter(MealEntry last, int limit, Consumer<List<MealEntry>> callback) {
+        dbRead.execute(() -> {
+            List<MealEntry> page = last == null
+                    ? mealEntryDao.getHistoryFirstPage(limit)
+                    : mealEntryDao.getHistoryPageAfter(last.date, last.id, limit);
+            mainHandler.post(() -> callback.accept(page));
+        });
+    }
+
+    @Override
+    public void loadAt(int position, int limit, Consumer<List<MealEntry>> callback) {
+        dbRead.execute(() -> {
+            List<MealEntry> page = mealEntryDao.getHistoryPageAt(position, limit);
+            mainHandler.post(() -> callback.accept(page));
+        });
+    }
+
+    @Override
+    public void loadBefore(MealEntry first, int limit, Consumer<List<MealEntry>> callback) {
+        dbRead.execute(() -> {
+            List<MealEntry> page = mealEntryDao.getHistoryPageBefore(first.date, first.id, limit);
+            mainHandler.post(() -> callback.accept(page));
+        });
+    }
+
+    @Override
+    public void onEntryClick(MealEntry entry) {
+        Intent intent = new Intent(this, MealDetailActivity.class);
+        intent.putExtra(MealDetailActivity.EXTRA_EPOCH_DAY, entry.date.toEpochDay());
+        startActivity(intent);
+    }
+}
@@ -23,8 +23,11 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.calmahahh.app.adapter.TaskAdapter;
 import com.calmahahh.app.db.AppDatabase;
+import com.calmahahh.app.db.CompletionDayDao;
 import com.calmahahh.app.db.PlanTask;
 import com.calmahahh.app.db.PlanTaskDao;
+import com.calmahahh.app.db.StatsRollupDao;
+import com.calmahahh.app.db.TableWatcher;
 import com.calmahahh.app.db.TaskCompletion;
 import com.calmahahh.app.db.TaskCompletionDao;
 import com.calmahahh.app.db.WorkoutHistory;
@@ -36,32 +39,41 @@ import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.switchmaterial.SwitchMaterial;
 import com.google.android.material.tabs.TabLayout;
 
-import java.text.SimpleDateFormat;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.TextStyle;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 public class PlanDetailActivity extends AppCompatActivity implements TaskAdapter.OnTaskActionListener {
 
-    private static final String[] DAYS = {"Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday", "Sunday"};
+    private static final DayOfWeek[] DAYS = DayOfWeek.values();
+    /** Day chips in the add/edit dialog, in {@link #DAYS} order */
+    private static final int[] DAY_CHIPS = {R.id.chipMonday, R.id.chipTuesday, R.id.chipWednesday,
+            R.id.chipThursday, R.id.chipFriday, R.id.chipSaturday, R.id.chipSunday};
 
     private long planId;
     private String planName;
-    private String selectedDay = DAYS[0];
+    private DayOfWeek selectedDay = DayOfWeek.MONDAY;
 
     private RecyclerView recyclerTasks;
     private TextView tvEmptyDay;
     private TaskAdapter taskAdapter;
     private final List<PlanTask> tasks = new ArrayList<>();
 
+    private AppDatabase db;
     private PlanTaskDao planTaskDao;
     private TaskCompletionDao taskCompletionDao;
+    private CompletionDayDao completionDayDao;
+    private StatsRollupDao statsRollupDao;
     private WorkoutHistoryDao workoutHistoryDao;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Executor dbRead = AppDatabase.readExecutor();
+    private final Executor dbWrite = AppDatabase.writeExecutor();
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     private ActivityResultLauncher<String> notificationPermissionLauncher;
@@ -91,9 +103,11 @@ public class PlanDetailActivity extends AppCompatActivity implements TaskAdapter
         toolbar.setTitle(planName != null ? planName : "Plan Detail");
         toolbar.setNavigationOnClickListener(v -> finish());
 
-        AppDatabase db = AppDatabase.getInstance(this);
+        db = AppDatabase.getInstance(this);
         planTaskDao = db.planTaskDao();
         taskCompletionDao = db.taskCompletionDao();
+        completionDayDao = db.completionDayDao();
+        statsRollupDao = db.statsRollupDao();
         workoutHistoryDao = db.workoutHistoryDao();
 
         recyclerTasks = findViewById(R.id.recyclerTasks);
@@ -104,18 +118,13 @@ public class PlanDetailActivity extends AppCompatActivity implements TaskAdapter
 
         // Setup day tabs
         TabLayout tabDays = findViewById(R.id.tabDays);
-        for (String day : DAYS) {
-            tabDays.addTab(tabDays.newTab().setText(day));
+        for (DayOfWeek day : DAYS) {
+            tabDays.addTab(tabDays.newTab().setText(day.getDisplayName(TextStyle.FULL, Locale.getDefault())));
         }
 
         // Select current day of week
-        Calendar cal = Calendar.getInstance();
-        int dayOfWeek = cal.get(Calendar.DAY_OF_WEEK);
-        int tabIndex = dayOfWeek == Calendar.SUNDAY ? 6 : dayOfWeek - 2;
-        if (tabIndex >= 0 && tabIndex < 7) {
-            tabDays.selectTab(tabDays.getTabAt(tabIndex));
-            selectedDay = DAYS[tabIndex];
-        }
+        selectedDay = LocalDate.now().getDayOfWeek();
+        tabDays.selectTab(tabDays.getTabAt(selectedDay.ordinal()));
 
         tabDays.addOnTabSelectedListener(new TabLayout.OnTabSelectedListener() {
             @Override public void onTabSelected(TabLayout.Tab tab) {
@@ -129,12 +138,15 @@ public class PlanDetailActivity extends AppCompatActivity implements TaskAdapter
         FloatingActionButton fab = findViewById(R.id.fabAddTask);
         fab.setOnClickListener(v -> showAddEditTaskDialog(null));
 
-        loadTasks();
+        TableWatcher.watch(this, db, this::loadTasks, "plan_tasks", "task_completions");
     }
 
     private void loadTasks() {
-        executor.execute(() -> {
-            List<PlanTask> dayTasks = planTaskDao.getTasksForPlanDay(planId, selectedDay);
+        dbRead.execute(() -> {
+            List<PlanTask> dayTasks = planTaskDao.getTasksForPlanDay(planId, PlanTask.dayBit(selectedDay));
+            // Checked state is today's completion record, whichever day is shown
+            Set<Long> done = new HashSet<>(taskCompletionDao.getCompletedTaskIds(LocalDate.now()));
+            for (PlanTask task : dayTasks) task.setCompleted(done.contains(task.getId()));
             mainHandler.post(() -> {
                 tasks.clear();
                 tasks.addAll(dayTasks);
@@ -178,9 +190,7 @@ public class PlanDetailActivity extends AppCompatActivity implements TaskAdapter
         radioDayAllDays.setOnCheckedChangeListener((buttonView, isChecked) -> {
             if (isChecked) {
                 // Check all day chips when "All Days" is selected
-                for (int i = 0; i < chipGroupDays.getChildCount(); i++) {
-                    chipGroupDays.getChildAt(i).performClick();
-                }
+                setDayChips(chipGroupDays, PlanTask.EVERY_DAY);
             }
         });
 
@@ -219,6 +229,9 @@ public class PlanDetailActivity extends AppCompatActivity implements TaskAdapter
             etEndTime.setText(endTime);
             etNotes.setText(existing.getNotes());
             switchReminder.setChecked(existing.isReminderEnabled());
+            radioDaySpecific.setChecked(true);
+            chipGroupDays.setVisibility(View.VISIBLE);
+            setDayChips(chipGroupDays, existing.getDaysMask());
 
             switch (existing.getCategory()) {
                 case "Workout": chipCategory.check(R.id.chipWorkout); break;
@@ -241,7 +254,7 @@ public class PlanDetailActivity extends AppCompatActivity implements TaskAdapter
             // Default to "Specific Days" and check the current selected day
             radioDaySpecific.setChecked(true);
             chipGroupDays.setVisibility(View.VISIBLE);
-            selectDayChip(chipGroupDays, selectedDay);
+            setDayChips(chipGroupDays, PlanTask.dayBit(selectedDay));
         }
 
         new AlertDialog.Builder(this)
@@ -271,18 +284,19 @@ public class PlanDetailActivity extends AppCompatActivity implements TaskAdapter
                     boolean reminder = switchReminder.isChecked();
 
                     // Get selected days
-                    List<String> selectedDays = getSelectedDays(chipGroupDays);
-                    if (selectedDays.isEmpty()) {
+                    int daysMask = getDayChips(chipGroupDays);
+                    if (daysMask == 0) {
                         Toast.makeText(this, "Please select at least one day", Toast.LENGTH_SHORT).show();
                         return;
                     }
 
                     final int finalDuration = duration;
 
-                    executor.execute(() -> {
+                    dbWrite.execute(() -> {
                         if (existing != null) {
                             existing.setTaskName(name);
                             existing.setCategory(category);
+                            existing.setDaysMask(daysMask);
                             existing.setSets(sets);
                             existing.setReps(reps);
                             existing.setIntensity(intensity);
@@ -291,31 +305,29 @@ public class PlanDetailActivity extends AppCompatActivity implements TaskAdapter
                             existing.setNotes(notes);
                             existing.setReminderEnabled(reminder);
                             planTaskDao.update(existing);
-                        } else {
-                            // Create tasks for each selected day
-                            for (String day : selectedDays) {
-                                PlanTask task = new PlanTask(planId, day, name, category);
-                                task.setSets(sets);
-                                task.setReps(reps);
-                                task.setIntensity(intensity);
-                                task.setStartTime(startTime);
-                                task.setDurationMinutes(finalDuration);
-                                task.setNotes(notes);
-                                task.setReminderEnabled(reminder);
-                                task.setOrderIndex(tasks.size());
-                                long taskId = planTaskDao.insert(task);
-                                task.setId(taskId);
-                            }
-                        }
 
-                        // Schedule/cancel notification
-                        mainHandler.post(() -> {
+                            // Only this task's alarms change; days no longer selected are cancelled
                             if (reminder) {
-                                // Notifications are scheduled via TaskNotificationManager
-                                TaskNotificationManager.scheduleAllReminders(this);
+                                TaskNotificationManager.scheduleTaskReminder(this, existing);
+                            } else {
+                                TaskNotificationManager.cancelTaskReminder(this, existing.getId());
                             }
-                            loadTasks();
-                        });
+                        } else {
+                            // One row covers every selected day
+                            PlanTask task = new PlanTask(planId, daysMask, name, category);
+                            task.setSets(sets);
+                            task.setReps(reps);
+                            task.setIntensity(intensity);
+                            task.setStartTime(startTime);
+                            task.setDurationMinutes(finalDuration);
+                            task.setNotes(notes);
+                            task.setReminderEnabled(reminder);
+                            task.setOrderIndex(tasks.size());
+                            task.setId(planTaskDao.insert(task));
+
+                            // Register alarms for the new task only
+                            if (reminder) TaskNotificationManager.scheduleTaskReminder(this, task);
+                        }
                     });
                 })
                 .setNegativeButton("Cancel", null)
@@ -368,23 +380,21 @@ public class PlanDetailActivity extends AppCompatActivity implements TaskAdapter
 
     @Override
     public void onTaskChecked(PlanTask task, boolean isChecked) {
-        long completedAt = isChecked ? System.currentTimeMillis() : 0;
-        String today = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date());
-
-        executor.execute(() -> {
-            planTaskDao.updateCompletion(task.getId(), isChecked, completedAt);
-
-            // Delete any existing completion record for this task on this date
-            taskCompletionDao.deleteCompletion(today, task.getId());
+        LocalDate today = LocalDate.now();
+
+        dbWrite.execute(() -> {
+            db.runInTransaction(() -> {
+                // One record per task and date: upsert when checked, remove when unchecked
+                if (isChecked) {
+                    taskCompletionDao.insert(new TaskCompletion(task.getId(), task.getPlanId(), today, true));
+                } else {
+                    taskCompletionDao.deleteCompletion(today, task.getId());
+                }
 
-            // Only insert if task is being completed (not unchecked)
-            if (isChecked) {
-                TaskCompletion completion = new TaskCompletion(task.getId(), today, true);
-                completion.setPlanName(planName);
-                completion.setTaskName(task.getTaskName());
-                completion.setCategory(task.getCategory());
-                taskCompletionDao.insert(completion);
-            }
+                // Keep the streak index and stats rollups in step with today's completions
+                completionDayDao.recordDay(today.toEpochDay(),
+                        taskCompletionDao.getCompletedCountInRange(today, today));
+            });
 
             // If workout task completed, record workout history
             if (isChecked && "Workout".equals(task.getCategory())) {
@@ -398,8 +408,6 @@ public class PlanDetailActivity extends AppCompatActivity implements TaskAdapter
                         weight, task.getSets(), task.getReps());
                 workoutHistoryDao.insert(history);
             }
-
-            mainHandler.post(this::loadTasks);
         });
     }
 
@@ -414,51 +422,34 @@ public class PlanDetailActivity extends AppCompatActivity implements TaskAdapter
                 .setTitle("Delete Task")
                 .setMessage("Delete \"" + task.getTaskName() + "\"?")
                 .setPositiveButton("Delete", (d, w) -> {
-                    executor.execute(() -> {
+                    dbWrite.execute(() -> {
                         planTaskDao.delete(task);
-                        mainHandler.post(this::loadTasks);
+                        // Deleting the task cascades into its past completions
+                        completionDayDao.rebuild(taskCompletionDao.getCompletedCountsByDate());
+                        statsRollupDao.rebuildAll();
                     });
                 })
                 .setNegativeButton("Cancel", null)
                 .show();
     }
 
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        executor.shutdown();
-    }
-
-    private List<String> getSelectedDays(ChipGroup chipGroupDays) {
-        List<String> days = new ArrayList<>();
-        int[] chipIds = {R.id.chipMonday, R.id.chipTuesday, R.id.chipWednesday, 
-                         R.id.chipThursday, R.id.chipFriday, R.id.chipSaturday, R.id.chipSunday};
-        String[] dayNames = {"Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday", "Sunday"};
-        
-        for (int i = 0; i < chipIds.length; i++) {
-            com.google.android.material.chip.Chip chip = chipGroupDays.findViewById(chipIds[i]);
+    /** Bitmask of the checked day chips, see {@link PlanTask#dayBit} */
+    private int getDayChips(ChipGroup chipGroupDays) {
+        int mask = 0;
+        for (int i = 0; i < DAY_CHIPS.length; i++) {
+            com.google.android.material.chip.Chip chip = chipGroupDays.findViewById(DAY_CHIPS[i]);
             if (chip != null && chip.isChecked()) {
-                days.add(dayNames[i]);
+                mask |= PlanTask.dayBit(DAYS[i]);
             }
         }
-        return days;
+        return mask;
     }
 
-    private void selectDayChip(ChipGroup chipGroupDays, String dayName) {
-        int chipId = -1;
-        switch (dayName) {
-            case "Monday": chipId = R.id.chipMonday; break;
-            case "Tuesday": chipId = R.id.chipTuesday; break;
-            case "Wednesday": chipId = R.id.chipWednesday; break;
-            case "Thursday": chipId = R.id.chipThursday; break;
-            case "Friday": chipId = R.id.chipFriday; break;
-            case "Saturday": chipId = R.id.chipSaturday; break;
-            case "Sunday": chipId = R.id.chipSunday; break;
-        }
-        if (chipId != -1) {
-            com.google.android.material.chip.Chip chip = chipGroupDays.findViewById(chipId);
+    private void setDayChips(ChipGroup chipGroupDays, int mask) {
+        for (int i = 0; i < DAY_CHIPS.length; i++) {
+            com.google.android.material.chip.Chip chip = chipGroupDays.findViewById(DAY_CHIPS[i]);
             if (chip != null) {
-                chip.setChecked(true);
+                chip.setChecked((mask & PlanTask.dayBit(DAYS[i])) != 0);
             }
         }
     }
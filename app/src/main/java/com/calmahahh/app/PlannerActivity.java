@@ -16,10 +16,13 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.calmahahh.app.adapter.PlanAdapter;
 import com.calmahahh.app.db.AppDatabase;
+import com.calmahahh.app.db.CompletionDayDao;
 import com.calmahahh.app.db.Plan;
 import com.calmahahh.app.db.PlanDao;
-import com.calmahahh.app.db.PlanTask;
-import com.calmahahh.app.db.PlanTaskDao;
+import com.calmahahh.app.db.PlanWithCounts;
+import com.calmahahh.app.db.StatsRollupDao;
+import com.calmahahh.app.db.TableWatcher;
+import com.calmahahh.app.db.TaskCompletionDao;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.chip.ChipGroup;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
@@ -28,8 +31,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 
 public class PlannerActivity extends AppCompatActivity implements PlanAdapter.OnPlanActionListener {
 
@@ -40,8 +42,11 @@ public class PlannerActivity extends AppCompatActivity implements PlanAdapter.On
     private final Map<Long, Integer> taskCounts = new HashMap<>();
 
     private PlanDao planDao;
-    private PlanTaskDao planTaskDao;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private TaskCompletionDao taskCompletionDao;
+    private CompletionDayDao completionDayDao;
+    private StatsRollupDao statsRollupDao;
+    private final Executor dbRead = AppDatabase.readExecutor();
+    private final Executor dbWrite = AppDatabase.writeExecutor();
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     @Override
@@ -54,7 +59,9 @@ public class PlannerActivity extends AppCompatActivity implements PlanAdapter.On
 
         AppDatabase db = AppDatabase.getInstance(this);
         planDao = db.planDao();
-        planTaskDao = db.planTaskDao();
+        taskCompletionDao = db.taskCompletionDao();
+        completionDayDao = db.completionDayDao();
+        statsRollupDao = db.statsRollupDao();
 
         recyclerPlans = findViewById(R.id.recyclerPlans);
         recyclerPlans.setLayoutManager(new LinearLayoutManager(this));
@@ -65,20 +72,17 @@ public class PlannerActivity extends AppCompatActivity implements PlanAdapter.On
 
         FloatingActionButton fab = findViewById(R.id.fabAddPlan);
         fab.setOnClickListener(v -> showCreatePlanDialog());
-    }
 
-    @Override
-    protected void onResume() {
-        super.onResume();
-        loadPlans();
+        TableWatcher.watch(this, db, this::loadPlans, "plans", "plan_tasks");
     }
 
     private void loadPlans() {
-        executor.execute(() -> {
-            List<Plan> all = planDao.getAllPlans();
+        dbRead.execute(() -> {
+            List<Plan> all = new ArrayList<>();
             Map<Long, Integer> counts = new HashMap<>();
-            for (Plan p : all) {
-                counts.put(p.getId(), planTaskDao.getTaskCountForPlan(p.getId()));
+            for (PlanWithCounts pc : planDao.getAllPlansWithCounts()) {
+                all.add(pc.plan);
+                counts.put(pc.plan.getId(), pc.taskCount);
             }
             mainHandler.post(() -> {
                 plans.clear();
@@ -115,10 +119,9 @@ public class PlannerActivity extends AppCompatActivity implements PlanAdapter.On
                     else if (checkedId == R.id.chipTypeStudy) type = "study";
                     else type = "custom";
 
-                    executor.execute(() -> {
+                    dbWrite.execute(() -> {
                         Plan plan = new Plan(name, type);
                         planDao.insert(plan);
-                        mainHandler.post(this::loadPlans);
                     });
                 })
                 .setNegativeButton("Cancel", null)
@@ -135,30 +138,11 @@ public class PlannerActivity extends AppCompatActivity implements PlanAdapter.On
 
     @Override
     public void onDuplicate(Plan plan) {
-        executor.execute(() -> {
-            // Create new plan
-            Plan newPlan = new Plan(plan.getName() + " (Copy)", plan.getType());
-            long newPlanId = planDao.insert(newPlan);
-
-            // Copy all tasks
-            List<PlanTask> tasks = planTaskDao.getTasksForPlan(plan.getId());
-            for (PlanTask task : tasks) {
-                PlanTask copy = new PlanTask(newPlanId, task.getDayOfWeek(), task.getTaskName(), task.getCategory());
-                copy.setSets(task.getSets());
-                copy.setReps(task.getReps());
-                copy.setIntensity(task.getIntensity());
-                copy.setStartTime(task.getStartTime());
-                copy.setDurationMinutes(task.getDurationMinutes());
-                copy.setNotes(task.getNotes());
-                copy.setReminderEnabled(task.isReminderEnabled());
-                copy.setOrderIndex(task.getOrderIndex());
-                planTaskDao.insert(copy);
-            }
+        dbWrite.execute(() -> {
+            planDao.duplicatePlan(plan.getId(), plan.getName() + " (Copy)");
 
-            mainHandler.post(() -> {
-                Toast.makeText(this, "Plan duplicated!", Toast.LENGTH_SHORT).show();
-                loadPlans();
-            });
+            mainHandler.post(() ->
+                    Toast.makeText(this, "Plan duplicated!", Toast.LENGTH_SHORT).show());
         });
     }
 
@@ -168,18 +152,14 @@ public class PlannerActivity extends AppCompatActivity implements PlanAdapter.On
                 .setTitle("Delete Plan")
                 .setMessage("Delete \"" + plan.getName() + "\" and all its tasks?")
                 .setPositiveButton("Delete", (dialog, which) -> {
-                    executor.execute(() -> {
+                    dbWrite.execute(() -> {
                         planDao.delete(plan);
-                        mainHandler.post(this::loadPlans);
+                        // Deleting the plan cascades into its tasks' past completions
+                        completionDayDao.rebuild(taskCompletionDao.getCompletedCountsByDate());
+                        statsRollupDao.rebuildAll();
                     });
                 })
                 .setNegativeButton("Cancel", null)
                 .show();
     }
-
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        executor.shutdown();
-    }
 }
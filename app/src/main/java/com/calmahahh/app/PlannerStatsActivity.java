@@ -15,7 +15,10 @@ import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.calmahahh.app.db.AppDatabase;
+import com.calmahahh.app.db.CompletionDayDao;
+import com.calmahahh.app.db.DateCompletionStats;
 import com.calmahahh.app.db.Plan;
+import com.calmahahh.app.db.PlanCompletionStats;
 import com.calmahahh.app.db.PlanDao;
 import com.calmahahh.app.db.TaskCompletion;
 import com.calmahahh.app.db.TaskCompletionDao;
@@ -39,18 +42,19 @@ import com.github.mikephil.charting.formatter.PercentFormatter;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.card.MaterialCardView;
 
-import java.text.SimpleDateFormat;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 public class PlannerStatsActivity extends AppCompatActivity {
 
-    private TextView tvTotalCompleted, tvMissedTasks, tvCurrentStreak, tvWeeklyRate;
+    private TextView tvTotalCompleted, tvMissedTasks, tvCurrentStreak, tvLongestStreak, tvWeeklyRate;
     private BarChart barChartWeekly;
     private PieChart pieChart;
     private LineChart lineChartProgress;
@@ -61,9 +65,11 @@ public class PlannerStatsActivity extends AppCompatActivity {
 
     private PlanDao planDao;
     private TaskCompletionDao taskCompletionDao;
+    private CompletionDayDao completionDayDao;
     private WorkoutHistoryDao workoutHistoryDao;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Executor dbRead = AppDatabase.readExecutor();
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final DateTimeFormatter labelFormat = DateTimeFormatter.ofPattern("MM-dd", Locale.US);
 
     private final List<String> exerciseNames = new ArrayList<>();
 
@@ -78,11 +84,13 @@ public class PlannerStatsActivity extends AppCompatActivity {
         AppDatabase db = AppDatabase.getInstance(this);
         planDao = db.planDao();
         taskCompletionDao = db.taskCompletionDao();
+        completionDayDao = db.completionDayDao();
         workoutHistoryDao = db.workoutHistoryDao();
 
         tvTotalCompleted = findViewById(R.id.tvTotalCompleted);
         tvMissedTasks = findViewById(R.id.tvMissedTasks);
         tvCurrentStreak = findViewById(R.id.tvCurrentStreak);
+        tvLongestStreak = findViewById(R.id.tvLongestStreak);
         tvWeeklyRate = findViewById(R.id.tvWeeklyRate);
         barChartWeekly = findViewById(R.id.barChartWeekly);
         pieChart = findViewById(R.id.pieChart);
@@ -96,46 +104,49 @@ public class PlannerStatsActivity extends AppCompatActivity {
     }
 
     private void loadStats() {
-        String today = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date());
+        LocalDate today = LocalDate.now();
 
         // Weekly range (Monday-Sunday of current week)
-        Calendar cal = Calendar.getInstance();
-        cal.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
-        String weekStart = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(cal.getTime());
-        cal.add(Calendar.DAY_OF_WEEK, 6);
-        String weekEnd = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(cal.getTime());
+        LocalDate weekStart = today.with(DayOfWeek.MONDAY);
+        LocalDate weekEnd = weekStart.plusDays(6);
 
-        executor.execute(() -> {
+        dbRead.execute(() -> {
             // Overview stats
             int totalCompleted = taskCompletionDao.getTotalCompleted();
             int missed = taskCompletionDao.getMissedCount(today);
-            int streak = calculateStreak();
-
-            // Weekly stats
-            int weeklyCompleted = taskCompletionDao.getCompletedCountInRange(weekStart, weekEnd);
-            int weeklyTotal = taskCompletionDao.getTotalCountInRange(weekStart, weekEnd);
+            int streak = completionDayDao.getCurrentStreak(today.toEpochDay());
+            int longestStreak = completionDayDao.getLongestStreak();
+
+            // Weekly stats: one grouped query feeds the rate and the bar chart
+            List<DateCompletionStats> days = taskCompletionDao.getDailyStatsInRange(weekStart, weekEnd);
+            Map<LocalDate, DateCompletionStats> byDate = new HashMap<>();
+            int weeklyCompleted = 0;
+            int weeklyTotal = 0;
+            for (DateCompletionStats d : days) {
+                byDate.put(d.date, d);
+                weeklyCompleted += d.completed;
+                weeklyTotal += d.total;
+            }
             float weeklyRate = weeklyTotal > 0 ? (weeklyCompleted * 100f / weeklyTotal) : 0;
 
             // Daily breakdown for bar chart
             List<float[]> dailyData = new ArrayList<>();
-            Calendar barCal = Calendar.getInstance();
-            barCal.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
             String[] dayLabels = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
             for (int i = 0; i < 7; i++) {
-                String dayDate = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(barCal.getTime());
-                int comp = taskCompletionDao.getCompletedCountInRange(dayDate, dayDate);
-                int total = taskCompletionDao.getTotalCountInRange(dayDate, dayDate);
-                dailyData.add(new float[]{comp, total});
-                barCal.add(Calendar.DAY_OF_WEEK, 1);
+                DateCompletionStats d = byDate.get(weekStart.plusDays(i));
+                dailyData.add(d != null ? new float[]{d.completed, d.total} : new float[]{0, 0});
             }
 
             // Per-plan stats
             List<Plan> plans = planDao.getAllPlans();
+            Map<Long, PlanCompletionStats> byPlan = new HashMap<>();
+            for (PlanCompletionStats ps : taskCompletionDao.getPlanStatsInRange(weekStart, weekEnd)) {
+                byPlan.put(ps.planId, ps);
+            }
             List<float[]> planStats = new ArrayList<>();
             for (Plan p : plans) {
-                int pComp = taskCompletionDao.getCompletedForPlanInRange(p.getName(), weekStart, weekEnd);
-                int pTotal = taskCompletionDao.getTotalForPlanInRange(p.getName(), weekStart, weekEnd);
-                planStats.add(new float[]{pComp, pTotal});
+                PlanCompletionStats ps = byPlan.get(p.getId());
+                planStats.add(ps != null ? new float[]{ps.completed, ps.total} : new float[]{0, 0});
             }
 
             // Workout exercise names for progressive overload
@@ -146,6 +157,7 @@ public class PlannerStatsActivity extends AppCompatActivity {
                 tvTotalCompleted.setText(String.valueOf(totalCompleted));
                 tvMissedTasks.setText(String.valueOf(missed));
                 tvCurrentStreak.setText(String.valueOf(streak));
+                tvLongestStreak.setText("Best: " + longestStreak);
                 tvWeeklyRate.setText(String.format(Locale.US, "%.0f%% completion rate", weeklyRate));
 
                 // Bar chart
@@ -168,26 +180,6 @@ public class PlannerStatsActivity extends AppCompatActivity {
         });
     }
 
-    private int calculateStreak() {
-        List<String> completedDates = taskCompletionDao.getCompletedDates();
-        if (completedDates.isEmpty()) return 0;
-
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-        int streak = 0;
-        Calendar cal = Calendar.getInstance();
-
-        for (int i = 0; i < 365; i++) {
-            String date = sdf.format(cal.getTime());
-            if (completedDates.contains(date)) {
-                streak++;
-                cal.add(Calendar.DAY_OF_YEAR, -1);
-            } else {
-                break;
-            }
-        }
-        return streak;
-    }
-
     private void setupBarChart(List<float[]> dailyData, String[] dayLabels) {
         List<BarEntry> entries = new ArrayList<>();
         for (int i = 0; i < dailyData.size(); i++) {
@@ -312,12 +304,10 @@ public class PlannerStatsActivity extends AppCompatActivity {
 
     private void loadProgressChart(String exerciseName) {
         // Get last 8 weeks of data
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.WEEK_OF_YEAR, -8);
-        String startDate = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(cal.getTime());
-        String endDate = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date());
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusWeeks(8);
 
-        executor.execute(() -> {
+        dbRead.execute(() -> {
             List<WorkoutHistory> history = workoutHistoryDao.getExerciseHistoryInRange(exerciseName, startDate, endDate);
 
             mainHandler.post(() -> {
@@ -329,7 +319,7 @@ public class PlannerStatsActivity extends AppCompatActivity {
                     WorkoutHistory h = history.get(i);
                     weightEntries.add(new Entry(i, (float) h.getWeight()));
                     repEntries.add(new Entry(i, h.getReps()));
-                    labels.add(h.getDate().substring(5)); // MM-dd
+                    labels.add(h.getDate().format(labelFormat));
                 }
 
                 if (weightEntries.isEmpty()) {
@@ -382,10 +372,4 @@ public class PlannerStatsActivity extends AppCompatActivity {
             });
         });
     }
-
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        executor.shutdown();
-    }
 }
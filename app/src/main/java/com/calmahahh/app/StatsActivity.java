@@ -10,45 +10,55 @@ import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.calmahahh.app.db.AppDatabase;
+import com.calmahahh.app.db.DailySummary;
+import com.calmahahh.app.db.DailySummaryDao;
 import com.calmahahh.app.db.DateCalories;
-import com.calmahahh.app.db.MealEntry;
-import com.calmahahh.app.db.MealEntryDao;
+import com.calmahahh.app.db.StatsRollup;
+import com.calmahahh.app.db.StatsRollupDao;
+import com.calmahahh.app.db.TableWatcher;
 import com.calmahahh.app.model.UserProfile;
+import com.calmahahh.app.util.CalorieStreak;
 import com.calmahahh.app.view.BarChartView;
 import com.calmahahh.app.view.CalendarGridView;
 import com.google.android.material.appbar.MaterialToolbar;
+import com.google.android.material.chip.ChipGroup;
 
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 
 /**
- * Statistics screen with calendar view, daily stats, weekly chart,
+ * Statistics screen with calendar view, daily stats, a calorie trend chart,
  * and streak tracking.
  */
 public class StatsActivity extends AppCompatActivity {
 
+    private static final int MAX_CHART_BARS = 12;
+
     private CalendarGridView calendarView;
     private BarChartView barChart;
     private TextView tvMonthLabel, tvSelectedDate;
     private TextView tvConsumedToday, tvRequiredToday, tvDifference, tvStatus;
     private TextView tvWeeklyAvg, tvMonthlyAvg;
     private TextView tvStreak, tvProgressPercent;
+    private ChipGroup chipGroupRange;
     private View progressBarFill;
     private View progressBarBg;
 
     private UserProfile userProfile;
-    private MealEntryDao mealEntryDao;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private LocalDate loadedDay;
+    private TableWatcher watcher;
+    private DailySummaryDao dailySummaryDao;
+    private StatsRollupDao statsRollupDao;
+    private final Executor dbRead = AppDatabase.readExecutor();
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-    private final SimpleDateFormat displayFormat = new SimpleDateFormat("EEE, MMM d, yyyy", Locale.US);
+    private final DateTimeFormatter displayFormat = DateTimeFormatter.ofPattern("EEE, MMM d, yyyy", Locale.US);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -56,22 +66,37 @@ public class StatsActivity extends AppCompatActivity {
         setContentView(R.layout.activity_stats);
 
         userProfile = UserProfile.load(this);
-        mealEntryDao = AppDatabase.getInstance(this).mealEntryDao();
+        loadedDay = LocalDate.now();
+        AppDatabase db = AppDatabase.getInstance(this);
+        dailySummaryDao = db.dailySummaryDao();
+        statsRollupDao = db.statsRollupDao();
 
         initViews();
         setupCalendar();
-        loadMonthData();
-        loadTodayStats();
-        loadWeeklyChart();
-        loadStreakData();
+        // Every card here is derived from daily_summary or its rollups
+        watcher = TableWatcher.watch(this, db, this::loadAll, "daily_summary", "stats_rollups");
     }
 
     @Override
-    protected void onResume() {
-        super.onResume();
+    protected void onStart() {
+        super.onStart();
+        // The target and today's date feed every card too but are not tables
+        UserProfile profile = UserProfile.load(this);
+        LocalDate now = LocalDate.now();
+        if (profile.getTargetCalories() != userProfile.getTargetCalories() || !now.equals(loadedDay)) {
+            userProfile = profile;
+            loadedDay = now;
+            calendarView.setTargetCalories(userProfile.getTargetCalories());
+            calendarView.setSelectedDate(now);
+            watcher.invalidate();
+        }
+    }
+
+    private void loadAll() {
         loadMonthData();
         loadTodayStats();
-        loadWeeklyChart();
+        loadWeeklyAverage();
+        loadTrendChart();
         loadStreakData();
     }
 
@@ -94,6 +119,8 @@ public class StatsActivity extends AppCompatActivity {
         tvProgressPercent = findViewById(R.id.tvProgressPercent);
         progressBarFill = findViewById(R.id.progressBarFill);
         progressBarBg = findViewById(R.id.progressBarBg);
+        chipGroupRange = findViewById(R.id.chipGroupRange);
+        chipGroupRange.setOnCheckedStateChangeListener((group, checkedIds) -> loadTrendChart());
 
         findViewById(R.id.btnPrevMonth).setOnClickListener(v -> {
             calendarView.previousMonth();
@@ -112,8 +139,7 @@ public class StatsActivity extends AppCompatActivity {
         calendarView.setTargetCalories(userProfile.getTargetCalories());
         tvMonthLabel.setText(calendarView.getDisplayMonthLabel());
 
-        String today = dateFormat.format(Calendar.getInstance().getTime());
-        calendarView.setSelectedDate(today);
+        calendarView.setSelectedDate(LocalDate.now());
 
         calendarView.setOnDateClickListener(date -> {
             calendarView.setSelectedDate(date);
@@ -121,32 +147,26 @@ public class StatsActivity extends AppCompatActivity {
 
             // Open meal detail for that day
             Intent intent = new Intent(StatsActivity.this, MealDetailActivity.class);
-            intent.putExtra("date", date);
+            intent.putExtra(MealDetailActivity.EXTRA_EPOCH_DAY, date.toEpochDay());
             startActivity(intent);
         });
     }
 
     private void loadMonthData() {
-        int year = calendarView.getDisplayYear();
-        int month = calendarView.getDisplayMonthIndex();
-
-        Calendar start = Calendar.getInstance();
-        start.set(year, month, 1);
-        String startDate = dateFormat.format(start.getTime());
-
-        Calendar end = (Calendar) start.clone();
-        end.set(Calendar.DAY_OF_MONTH, end.getActualMaximum(Calendar.DAY_OF_MONTH));
-        String endDate = dateFormat.format(end.getTime());
-
-        executor.execute(() -> {
-            List<DateCalories> data = mealEntryDao.getCaloriesInRange(startDate, endDate);
-            Map<String, Double> map = new HashMap<>();
+        YearMonth month = YearMonth.of(calendarView.getDisplayYear(),
+                calendarView.getDisplayMonthIndex() + 1);
+        LocalDate startDate = month.atDay(1);
+        LocalDate endDate = month.atEndOfMonth();
+
+        dbRead.execute(() -> {
+            List<DateCalories> data = dailySummaryDao.getCaloriesInRange(startDate, endDate);
+            Map<LocalDate, Double> map = new HashMap<>();
             for (DateCalories dc : data) {
                 map.put(dc.date, dc.totalCalories);
             }
 
-            // Also get monthly average
-            double monthlyAvg = mealEntryDao.getAverageCaloriesInRange(startDate, endDate);
+            // Also get monthly average (summary rows only exist for logged days)
+            double monthlyAvg = averageOf(data);
 
             mainHandler.post(() -> {
                 calendarView.setCalorieData(map);
@@ -156,23 +176,18 @@ public class StatsActivity extends AppCompatActivity {
     }
 
     private void loadTodayStats() {
-        String today = dateFormat.format(Calendar.getInstance().getTime());
-        loadDateStats(today);
+        loadDateStats(LocalDate.now());
     }
 
-    private void loadDateStats(String date) {
-        executor.execute(() -> {
-            double consumed = mealEntryDao.getTotalCaloriesForDate(date);
+    private void loadDateStats(LocalDate date) {
+        dbRead.execute(() -> {
+            DailySummary summary = dailySummaryDao.getForDate(date);
+            double consumed = summary != null ? summary.totalCalories : 0;
             int target = userProfile.getTargetCalories();
             double diff = consumed - target;
 
             mainHandler.post(() -> {
-                try {
-                    java.util.Date d = dateFormat.parse(date);
-                    tvSelectedDate.setText(displayFormat.format(d));
-                } catch (Exception e) {
-                    tvSelectedDate.setText(date);
-                }
+                tvSelectedDate.setText(date.format(displayFormat));
 
                 tvConsumedToday.setText(String.format(Locale.US, "%.0f kcal", consumed));
                 tvRequiredToday.setText(String.format(Locale.US, "%,d kcal", target));
@@ -213,89 +228,90 @@ public class StatsActivity extends AppCompatActivity {
         });
     }
 
-    private void loadWeeklyChart() {
-        Calendar cal = Calendar.getInstance();
-        String endDate = dateFormat.format(cal.getTime());
-        cal.add(Calendar.DAY_OF_YEAR, -6);
-        String startDate = dateFormat.format(cal.getTime());
+    private void loadWeeklyAverage() {
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(6);
 
-        executor.execute(() -> {
-            List<DateCalories> data = mealEntryDao.getCaloriesInRange(startDate, endDate);
-            double weeklyAvg = mealEntryDao.getAverageCaloriesInRange(startDate, endDate);
+        dbRead.execute(() -> {
+            double weeklyAvg = averageOf(dailySummaryDao.getCaloriesInRange(startDate, endDate));
+            mainHandler.post(() ->
+                    tvWeeklyAvg.setText(String.format(Locale.US, "%.0f kcal", weeklyAvg)));
+        });
+    }
 
-            // Build bar data for all 7 days
-            Map<String, Double> map = new HashMap<>();
-            for (DateCalories dc : data) {
-                map.put(dc.date, dc.totalCalories);
+    /**
+     * Bar chart of average daily calories for the selected range. Longer
+     * ranges read week, month or year rollups so at most MAX_CHART_BARS
+     * rows are loaded however much history there is.
+     */
+    private void loadTrendChart() {
+        int range = chipGroupRange.getCheckedChipId();
+        LocalDate endDate = LocalDate.now();
+
+        dbRead.execute(() -> {
+            LocalDate startDate;
+            if (range == R.id.chipRangeMonth) {
+                startDate = endDate.minusDays(29);
+            } else if (range == R.id.chipRangeYear) {
+                startDate = endDate.withDayOfMonth(1).minusMonths(MAX_CHART_BARS - 1);
+            } else if (range == R.id.chipRangeAll) {
+                LocalDate first = statsRollupDao.getFirstPeriodStart();
+                startDate = first != null && first.isBefore(endDate) ? first : endDate;
+            } else {
+                startDate = endDate.minusDays(6);
+            }
+
+            int tier = StatsRollupDao.tierFor(startDate, endDate, MAX_CHART_BARS);
+            Map<LocalDate, StatsRollup> byPeriod = new HashMap<>();
+            for (StatsRollup r : statsRollupDao.getSeries(tier, startDate, endDate)) {
+                byPeriod.put(r.periodStart, r);
             }
 
+            // One bar per period, including periods with nothing logged
+            DateTimeFormatter labelFormat = chartLabelFormat(tier);
             List<BarChartView.BarData> bars = new ArrayList<>();
-            Calendar c = Calendar.getInstance();
-            c.add(Calendar.DAY_OF_YEAR, -6);
-            SimpleDateFormat shortFormat = new SimpleDateFormat("EEE", Locale.US);
-
-            for (int i = 0; i < 7; i++) {
-                String dateStr = dateFormat.format(c.getTime());
-                String label = shortFormat.format(c.getTime());
-                double value = map.containsKey(dateStr) ? map.get(dateStr) : 0;
-                bars.add(new BarChartView.BarData(label, value));
-                c.add(Calendar.DAY_OF_YEAR, 1);
+            for (LocalDate p = StatsRollup.periodStart(tier, startDate); !p.isAfter(endDate);
+                 p = StatsRollup.nextPeriod(tier, p)) {
+                StatsRollup r = byPeriod.get(p);
+                bars.add(new BarChartView.BarData(p.format(labelFormat),
+                        r != null ? r.getAverageCalories() : 0));
             }
 
-            mainHandler.post(() -> {
-                barChart.setData(bars, userProfile.getTargetCalories());
-                tvWeeklyAvg.setText(String.format(Locale.US, "%.0f kcal", weeklyAvg));
-            });
+            mainHandler.post(() -> barChart.setData(bars, userProfile.getTargetCalories()));
         });
     }
 
-    private void loadStreakData() {
-        String today = dateFormat.format(Calendar.getInstance().getTime());
-        executor.execute(() -> {
-            // Calculate consecutive days with calorie entries and their accuracy percentages
-            int streakDays = 0;
-            double totalAccuracy = 0.0;
-            Calendar cal = Calendar.getInstance();
-            int target = userProfile.getTargetCalories();
+    private static DateTimeFormatter chartLabelFormat(int tier) {
+        switch (tier) {
+            case StatsRollup.TIER_WEEK:  return DateTimeFormatter.ofPattern("MMM d", Locale.US);
+            case StatsRollup.TIER_MONTH: return DateTimeFormatter.ofPattern("MMM", Locale.US);
+            case StatsRollup.TIER_YEAR:  return DateTimeFormatter.ofPattern("yyyy", Locale.US);
+            default:                     return DateTimeFormatter.ofPattern("EEE", Locale.US);
+        }
+    }
 
-            for (int i = 0; i < 365; i++) {
-                String dateStr = dateFormat.format(cal.getTime());
-                double cals = mealEntryDao.getTotalCaloriesForDate(dateStr);
-                
-                // Only count days with actual calorie entries
-                if (cals > 0) {
-                    // Calculate accuracy percentage (not capped)
-                    double accuracy = (cals / target) * 100;
-                    totalAccuracy += accuracy;
-                    streakDays++;
-                    cal.add(Calendar.DAY_OF_YEAR, -1);
-                } else {
-                    // Stop streak when there are no entries
-                    break;
-                }
-            }
+    private static double averageOf(List<DateCalories> data) {
+        if (data.isEmpty()) return 0;
+        double total = 0;
+        for (DateCalories dc : data) total += dc.totalCalories;
+        return total / data.size();
+    }
+
+    private void loadStreakData() {
+        dbRead.execute(() -> {
+            CalorieStreak streak = CalorieStreak.compute(this, dailySummaryDao,
+                    userProfile.getTargetCalories());
 
-            // Calculate average accuracy for the streak
-            double averageAccuracy = streakDays > 0 ? (totalAccuracy / streakDays) : 0;
-            int finalStreakDays = streakDays;
-            double finalAverageAccuracy = averageAccuracy;
-            
             mainHandler.post(() -> {
-                if (finalStreakDays > 0) {
+                if (streak.days > 0) {
                     tvStreak.setText(String.format(Locale.US, "%d day%s • %.0f%% avg", 
-                        finalStreakDays, 
-                        finalStreakDays != 1 ? "s" : "",
-                        finalAverageAccuracy));
+                        streak.days, 
+                        streak.days != 1 ? "s" : "",
+                        streak.averageAccuracy));
                 } else {
                     tvStreak.setText("0 days");
                 }
             });
         });
     }
-
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        executor.shutdown();
-    }
 }
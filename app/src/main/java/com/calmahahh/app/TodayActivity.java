@@ -13,34 +13,33 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.calmahahh.app.adapter.TodayTaskAdapter;
 import com.calmahahh.app.db.AppDatabase;
-import com.calmahahh.app.db.Plan;
-import com.calmahahh.app.db.PlanDao;
+import com.calmahahh.app.db.CompletionDayDao;
 import com.calmahahh.app.db.PlanTask;
 import com.calmahahh.app.db.PlanTaskDao;
+import com.calmahahh.app.db.TableWatcher;
 import com.calmahahh.app.db.TaskCompletion;
 import com.calmahahh.app.db.TaskCompletionDao;
+import com.calmahahh.app.db.TaskWithPlanName;
 import com.calmahahh.app.db.WorkoutHistory;
 import com.calmahahh.app.db.WorkoutHistoryDao;
 import com.google.android.material.appbar.MaterialToolbar;
 
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.format.TextStyle;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * Today screen - shows all tasks from all plans for the current day of week.
  */
 public class TodayActivity extends AppCompatActivity implements TodayTaskAdapter.OnTodayTaskListener {
 
-    private static final String[] DAYS = {"Sunday", "Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday"};
-
     private RecyclerView recyclerTodayTasks;
     private TextView tvDayName, tvDate, tvTotalTasks, tvCompletedTasks, tvRemainingTasks, tvNoTasks;
     private ProgressBar progressToday;
@@ -48,16 +47,18 @@ public class TodayActivity extends AppCompatActivity implements TodayTaskAdapter
     private TodayTaskAdapter adapter;
     private final List<PlanTask> todayTasks = new ArrayList<>();
     private final List<String> planNames = new ArrayList<>();
-    private final Map<Long, String> planNameMap = new HashMap<>();
 
-    private PlanDao planDao;
+    private AppDatabase db;
     private PlanTaskDao planTaskDao;
     private TaskCompletionDao taskCompletionDao;
+    private CompletionDayDao completionDayDao;
     private WorkoutHistoryDao workoutHistoryDao;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Executor dbRead = AppDatabase.readExecutor();
+    private final Executor dbWrite = AppDatabase.writeExecutor();
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
-    private String todayDayName;
+    private LocalDate today;
+    private TableWatcher watcher;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -67,10 +68,10 @@ public class TodayActivity extends AppCompatActivity implements TodayTaskAdapter
         MaterialToolbar toolbar = findViewById(R.id.toolbar);
         toolbar.setNavigationOnClickListener(v -> finish());
 
-        AppDatabase db = AppDatabase.getInstance(this);
-        planDao = db.planDao();
+        db = AppDatabase.getInstance(this);
         planTaskDao = db.planTaskDao();
         taskCompletionDao = db.taskCompletionDao();
+        completionDayDao = db.completionDayDao();
         workoutHistoryDao = db.workoutHistoryDao();
 
         tvDayName = findViewById(R.id.tvDayName);
@@ -87,36 +88,40 @@ public class TodayActivity extends AppCompatActivity implements TodayTaskAdapter
         recyclerTodayTasks.setAdapter(adapter);
 
         // Detect current day
-        Calendar cal = Calendar.getInstance();
-        todayDayName = DAYS[cal.get(Calendar.DAY_OF_WEEK) - 1];
+        showDay(LocalDate.now());
 
-        tvDayName.setText(todayDayName);
-        tvDate.setText(new SimpleDateFormat("MMMM d, yyyy", Locale.US).format(new Date()));
+        watcher = TableWatcher.watch(this, db, this::loadTodayTasks, "plan_tasks", "plans", "task_completions");
     }
 
     @Override
-    protected void onResume() {
-        super.onResume();
-        loadTodayTasks();
+    protected void onStart() {
+        super.onStart();
+        // Coming back after midnight shows the new day's tasks
+        LocalDate now = LocalDate.now();
+        if (!now.equals(today)) {
+            showDay(now);
+            watcher.invalidate();
+        }
     }
 
-    private void loadTodayTasks() {
-        executor.execute(() -> {
-            // Load all plans to build name map
-            List<Plan> allPlans = planDao.getAllPlans();
-            planNameMap.clear();
-            for (Plan p : allPlans) {
-                planNameMap.put(p.getId(), p.getName());
-            }
-
-            // Load tasks for today's day of week
-            List<PlanTask> allTodayTasks = planTaskDao.getTasksForDay(todayDayName);
+    private void showDay(LocalDate day) {
+        today = day;
+        tvDayName.setText(today.getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.US));
+        tvDate.setText(new SimpleDateFormat("MMMM d, yyyy", Locale.US).format(new Date()));
+    }
 
-            // Build plan names list
+    private void loadTodayTasks() {
+        dbRead.execute(() -> {
+            // Load tasks for today's day of week, with their plan names
+            List<TaskWithPlanName> rows = planTaskDao.getTasksWithPlanNameForDay(
+                    PlanTask.dayBit(today.getDayOfWeek()));
+            Set<Long> done = new HashSet<>(taskCompletionDao.getCompletedTaskIds(today));
+            List<PlanTask> allTodayTasks = new ArrayList<>();
             List<String> names = new ArrayList<>();
-            for (PlanTask t : allTodayTasks) {
-                String pName = planNameMap.get(t.getPlanId());
-                names.add(pName != null ? pName : "Unknown Plan");
+            for (TaskWithPlanName row : rows) {
+                row.task.setCompleted(done.contains(row.task.getId()));
+                allTodayTasks.add(row.task);
+                names.add(row.planName != null ? row.planName : "Unknown Plan");
             }
 
             // Count completed
@@ -148,24 +153,20 @@ public class TodayActivity extends AppCompatActivity implements TodayTaskAdapter
     }
 
     @Override
-    public void onTaskChecked(PlanTask task, boolean isChecked, String planName) {
-        long completedAt = isChecked ? System.currentTimeMillis() : 0;
-        String today = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date());
-
-        executor.execute(() -> {
-            planTaskDao.updateCompletion(task.getId(), isChecked, completedAt);
-
-            // Delete any existing completion record for this task on this date
-            taskCompletionDao.deleteCompletion(today, task.getId());
-
-            // Only insert if task is being completed (not unchecked)
-            if (isChecked) {
-                TaskCompletion completion = new TaskCompletion(task.getId(), today, true);
-                completion.setPlanName(planName);
-                completion.setTaskName(task.getTaskName());
-                completion.setCategory(task.getCategory());
-                taskCompletionDao.insert(completion);
-            }
+    public void onTaskChecked(PlanTask task, boolean isChecked) {
+        dbWrite.execute(() -> {
+            db.runInTransaction(() -> {
+                // One record per task and date: upsert when checked, remove when unchecked
+                if (isChecked) {
+                    taskCompletionDao.insert(new TaskCompletion(task.getId(), task.getPlanId(), today, true));
+                } else {
+                    taskCompletionDao.deleteCompletion(today, task.getId());
+                }
+
+                // Keep the streak index and stats rollups in step with today's completions
+                completionDayDao.recordDay(today.toEpochDay(),
+                        taskCompletionDao.getCompletedCountInRange(today, today));
+            });
 
             // Record workout history if applicable
             if (isChecked && "Workout".equals(task.getCategory())) {
@@ -179,14 +180,6 @@ public class TodayActivity extends AppCompatActivity implements TodayTaskAdapter
                         weight, task.getSets(), task.getReps());
                 workoutHistoryDao.insert(history);
             }
-
-            mainHandler.post(this::loadTodayTasks);
         });
     }
-
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        executor.shutdown();
-    }
 }
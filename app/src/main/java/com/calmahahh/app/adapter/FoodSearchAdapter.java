@@ -0,0 +1,96 @@
+package com.calmahahh.app.adapter;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ArrayAdapter;
+import android.widget.Filter;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+
+import com.calmahahh.app.db.MealEntry;
+import com.calmahahh.app.db.MealEntryDao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Search-as-you-type suggestions of previously logged foods.
+ * Filtering runs on the Filter's worker thread, so the DAO is queried directly.
+ */
+public class FoodSearchAdapter extends ArrayAdapter<MealEntry> {
+
+    private static final int MAX_RESULTS = 8;
+
+    private final MealEntryDao mealEntryDao;
+    private final List<MealEntry> results = new ArrayList<>();
+
+    public FoodSearchAdapter(@NonNull Context context, MealEntryDao mealEntryDao) {
+        super(context, android.R.layout.simple_list_item_2);
+        this.mealEntryDao = mealEntryDao;
+    }
+
+    @Override
+    public int getCount() {
+        return results.size();
+    }
+
+    @Override
+    public MealEntry getItem(int position) {
+        return results.get(position);
+    }
+
+    @NonNull
+    @Override
+    public View getView(int position, View convertView, @NonNull ViewGroup parent) {
+        View view = convertView != null ? convertView : LayoutInflater.from(getContext())
+                .inflate(android.R.layout.simple_list_item_2, parent, false);
+        MealEntry entry = results.get(position);
+        ((TextView) view.findViewById(android.R.id.text1)).setText(entry.foodName);
+        ((TextView) view.findViewById(android.R.id.text2)).setText(String.format(Locale.US,
+                "%.0fg | %.0f kcal | P:%.1f C:%.1f F:%.1f",
+                entry.grams, entry.calories, entry.protein, entry.carbs, entry.fat));
+        return view;
+    }
+
+    @NonNull
+    @Override
+    public Filter getFilter() {
+        return filter;
+    }
+
+    private final Filter filter = new Filter() {
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            FilterResults out = new FilterResults();
+            List<MealEntry> found = constraint == null
+                    ? new ArrayList<>()
+                    : mealEntryDao.searchFoods(constraint.toString(), MAX_RESULTS);
+            out.values = found;
+            out.count = found.size();
+            return out;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void publishResults(CharSequence constraint, FilterResults filterResults) {
+            results.clear();
+            if (filterResults.values != null) {
+                results.addAll((List<MealEntry>) filterResults.values);
+            }
+            if (results.isEmpty()) {
+                notifyDataSetInvalidated();
+            } else {
+                notifyDataSetChanged();
+            }
+        }
+
+        @Override
+        public CharSequence convertResultToString(Object resultValue) {
+            return ((MealEntry) resultValue).foodName;
+        }
+    };
+}
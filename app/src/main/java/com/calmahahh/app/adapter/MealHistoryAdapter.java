@@ -0,0 +1,211 @@
+package com.calmahahh.app.adapter;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.calmahahh.app.R;
+import com.calmahahh.app.db.MealEntry;
+
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Paged adapter for the full meal history, newest first.
+ *
+ * Only a sliding window of at most {@link #MAX_WINDOW} entries is held in
+ * memory. The adapter reports the total entry count, so rows outside the
+ * window are shown as loading placeholders and the scrollbar reflects the
+ * whole history. Pages are fetched through a {@link PageLoader} by keyset on
+ * the first/last entry of the window once a bound row comes within
+ * {@link #PREFETCH_DISTANCE} of either edge. A bound row further than a page
+ * from the window (a fling or scrollbar drag) replaces the window with pages
+ * around that row instead of growing towards it.
+ */
+public class MealHistoryAdapter extends RecyclerView.Adapter<MealHistoryAdapter.ViewHolder> {
+
+    public static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_DISTANCE = 20;
+    private static final int MAX_WINDOW = PAGE_SIZE * 4;
+
+    /** Fetches pages off the main thread and delivers results on the main thread */
+    public interface PageLoader {
+        /** Entries older than {@code last}, or the newest entries when it is null */
+        void loadAfter(MealEntry last, int limit, Consumer<List<MealEntry>> callback);
+        /** Entries from adapter position {@code position} on, newest first */
+        void loadAt(int position, int limit, Consumer<List<MealEntry>> callback);
+        /** Entries newer than {@code first}, nearest (oldest) first */
+        void loadBefore(MealEntry first, int limit, Consumer<List<MealEntry>> callback);
+    }
+
+    public interface OnEntryClickListener {
+        void onEntryClick(MealEntry entry);
+    }
+
+    private final PageLoader loader;
+    private final OnEntryClickListener listener;
+    private final DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("EEE, MMM d, yyyy", Locale.US);
+
+    private final List<MealEntry> window = new ArrayList<>();
+    private int windowStart;   // adapter position of window.get(0)
+    private int totalCount;
+    private boolean loadingAfter, loadingBefore;
+    private int jumpStart = -1; // window start being loaded by a jump, or -1
+    private int generation;    // bumped on reset so stale page results are dropped
+
+    public MealHistoryAdapter(PageLoader loader, OnEntryClickListener listener) {
+        this.loader = loader;
+        this.listener = listener;
+    }
+
+    /** Starts over from the newest entry with a freshly counted history */
+    public void reset(int totalCount) {
+        generation++;
+        window.clear();
+        windowStart = 0;
+        loadingAfter = false;
+        loadingBefore = false;
+        jumpStart = -1;
+        this.totalCount = totalCount;
+        notifyDataSetChanged();
+        if (totalCount > 0) loadAfter();
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_meal_history, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        int index = position - windowStart;
+        if (index >= 0 && index < window.size()) {
+            MealEntry entry = window.get(index);
+            holder.tvFoodName.setText(entry.foodName);
+            holder.tvDetails.setText(String.format(Locale.US, "%s | %s | %.0fg",
+                    entry.date.format(dateFormat), entry.mealType, entry.grams));
+            holder.tvCalories.setText(String.format(Locale.US, "%.0f kcal", entry.calories));
+            holder.itemView.setOnClickListener(v -> {
+                if (listener != null) listener.onEntryClick(entry);
+            });
+        } else {
+            holder.tvFoodName.setText("Loading…");
+            holder.tvDetails.setText("");
+            holder.tvCalories.setText("");
+            holder.itemView.setOnClickListener(null);
+        }
+        prefetchAround(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return totalCount;
+    }
+
+    private void prefetchAround(int position) {
+        int windowEnd = windowStart + window.size();
+        if (position < windowStart - PAGE_SIZE || position >= windowEnd + PAGE_SIZE) {
+            jumpTo(position);
+        } else if (position >= windowEnd - PREFETCH_DISTANCE && windowEnd < totalCount) {
+            loadAfter();
+        } else if (position < windowStart + PREFETCH_DISTANCE && windowStart > 0) {
+            loadBefore();
+        }
+    }
+
+    private void loadAfter() {
+        if (loadingAfter) return;
+        loadingAfter = true;
+        int gen = generation;
+        MealEntry last = lastOrNull();
+        loader.loadAfter(last, PAGE_SIZE, page -> {
+            if (gen != generation) return;
+            loadingAfter = false;
+            // The tail moved while loading (trimmed by a backward load); refetch on next bind
+            if (last != lastOrNull()) return;
+            int insertAt = windowStart + window.size();
+            window.addAll(page);
+            notifyItemRangeChanged(insertAt, page.size());
+            if (window.size() > MAX_WINDOW) {
+                int drop = window.size() - MAX_WINDOW;
+                window.subList(0, drop).clear();
+                notifyItemRangeChanged(windowStart, drop);
+                windowStart += drop;
+            }
+        });
+    }
+
+    /** Replaces the window with the pages around {@code position} */
+    private void jumpTo(int position) {
+        int start = Math.max(0, position - PAGE_SIZE);
+        int size = Math.min(PAGE_SIZE * 2, totalCount - start);
+        // A jump already under way covers this row; the next bind catches up
+        if (jumpStart >= 0 && position >= jumpStart && position < jumpStart + size) return;
+
+        generation++; // pending edge loads belong to the old window
+        loadingAfter = false;
+        loadingBefore = false;
+        jumpStart = start;
+        int gen = generation;
+        loader.loadAt(start, size, page -> {
+            if (gen != generation) return;
+            jumpStart = -1;
+            int oldStart = windowStart, oldSize = window.size();
+            window.clear();
+            window.addAll(page);
+            windowStart = start;
+            notifyItemRangeChanged(oldStart, oldSize);
+            // Rebinds the rows on screen, which were placeholders until now
+            notifyItemRangeChanged(start, page.size());
+        });
+    }
+
+    private void loadBefore() {
+        if (loadingBefore || window.isEmpty()) return;
+        loadingBefore = true;
+        int gen = generation;
+        int limit = Math.min(PAGE_SIZE, windowStart);
+        MealEntry first = window.get(0);
+        loader.loadBefore(first, limit, page -> {
+            if (gen != generation) return;
+            loadingBefore = false;
+            if (window.isEmpty() || window.get(0) != first) return;
+            List<MealEntry> newestFirst = new ArrayList<>(page);
+            Collections.reverse(newestFirst);
+            window.addAll(0, newestFirst);
+            windowStart -= newestFirst.size();
+            notifyItemRangeChanged(windowStart, newestFirst.size());
+            if (window.size() > MAX_WINDOW) {
+                int drop = window.size() - MAX_WINDOW;
+                window.subList(MAX_WINDOW, window.size()).clear();
+                notifyItemRangeChanged(windowStart + MAX_WINDOW, drop);
+            }
+        });
+    }
+
+    private MealEntry lastOrNull() {
+        return window.isEmpty() ? null : window.get(window.size() - 1);
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        TextView tvFoodName, tvDetails, tvCalories;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvFoodName = itemView.findViewById(R.id.tvHistoryFoodName);
+            tvDetails = itemView.findViewById(R.id.tvHistoryDetails);
+            tvCalories = itemView.findViewById(R.id.tvHistoryCalories);
+        }
+    }
+}
@@ -24,7 +24,7 @@ import java.util.Locale;
 public class TodayTaskAdapter extends RecyclerView.Adapter<TodayTaskAdapter.ViewHolder> {
 
     public interface OnTodayTaskListener {
-        void onTaskChecked(PlanTask task, boolean isChecked, String planName);
+        void onTaskChecked(PlanTask task, boolean isChecked);
     }
 
     private final List<PlanTask> tasks;
@@ -91,7 +91,7 @@ public class TodayTaskAdapter extends RecyclerView.Adapter<TodayTaskAdapter.View
         }
 
         holder.cbCompleted.setOnCheckedChangeListener((buttonView, isChecked) ->
-                listener.onTaskChecked(task, isChecked, planName));
+                listener.onTaskChecked(task, isChecked));
     }
 
     private void showNotesDialog(android.content.Context context, PlanTask task) {
@@ -0,0 +1,86 @@
+package com.calmahahh.app.api;
+
+import android.util.Base64;
+import android.util.Base64OutputStream;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * Gemini request body that streams the image into the socket.
+ *
+ * The JSON around the image comes from {@link GeminiRequest} with a marker in
+ * place of the data, split in two at the marker. Only the compressed image is
+ * held in memory; {@link #writeTo} writes the JSON head, Base64-encodes the
+ * image straight into the sink and writes the tail. The Base64 string and its
+ * JSON-escaped copy are never built. The length is known up front, so OkHttp
+ * sends a plain Content-Length and can replay the body on a retry.
+ */
+public class GeminiImageBody extends RequestBody {
+
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final Gson gson = new Gson();
+    // Base64OutputStream sizes its output buffer to each write, so the image
+    // goes in slices; a multiple of 3 leaves no partial group between them
+    private static final int CHUNK = 3 * 4096;
+
+    private final byte[] head;
+    private final byte[] image;
+    private final int imageLength;
+    private final byte[] tail;
+
+    private GeminiImageBody(byte[] head, byte[] image, int imageLength, byte[] tail) {
+        this.head = head;
+        this.image = image;
+        this.imageLength = imageLength;
+        this.tail = tail;
+    }
+
+    /**
+     * Wraps an encoded image; the array is used as is, not copied.
+     *
+     * @param mimeType "image/jpeg" or "image/webp"
+     * @param length   number of leading bytes of {@code image} to send
+     */
+    public static GeminiImageBody create(String prompt, String mimeType, byte[] image, int length) {
+        // Quotes inside the prompt are escaped, so this can only match the image data
+        String marker = "\"data\":\"@\"";
+        String json = gson.toJson(GeminiRequest.create(prompt, "@", mimeType));
+        int at = json.indexOf(marker) + marker.length() - 2; // the '@'
+        byte[] head = json.substring(0, at).getBytes(StandardCharsets.UTF_8);
+        byte[] tail = json.substring(at + 1).getBytes(StandardCharsets.UTF_8);
+        return new GeminiImageBody(head, image, length, tail);
+    }
+
+    @Override
+    public MediaType contentType() {
+        return JSON;
+    }
+
+    @Override
+    public long contentLength() {
+        long base64Length = 4L * ((imageLength + 2) / 3);
+        return head.length + base64Length + tail.length;
+    }
+
+    @Override
+    public void writeTo(@NonNull BufferedSink sink) throws IOException {
+        sink.write(head);
+        OutputStream out = new Base64OutputStream(sink.outputStream(),
+                Base64.NO_WRAP | Base64.NO_CLOSE);
+        for (int off = 0; off < imageLength; off += CHUNK) {
+            out.write(image, off, Math.min(CHUNK, imageLength - off));
+        }
+        out.close(); // writes the final padding; NO_CLOSE leaves the sink open
+        sink.write(tail);
+    }
+}
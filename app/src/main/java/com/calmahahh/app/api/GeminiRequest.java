@@ -17,6 +17,8 @@ import java.util.List;
  *   ]}],
  *   "generationConfig": { "temperature": 0.1, "responseMimeType": "application/json" }
  * }
+ * {@link GeminiImageBody} serializes this with a placeholder for the image
+ * data and streams the real image in its place.
  */
 public class GeminiRequest {
 
@@ -30,6 +32,17 @@ public class GeminiRequest {
      * @param base64Img Base64-encoded JPEG image
      */
     public static GeminiRequest create(String prompt, String base64Img) {
+        return create(prompt, base64Img, "image/jpeg");
+    }
+
+    /**
+     * Creates a request with image + text prompt.
+     *
+     * @param prompt    Structured text prompt
+     * @param base64Img Base64-encoded image
+     * @param mimeType  Image type, e.g. "image/jpeg" or "image/webp"
+     */
+    public static GeminiRequest create(String prompt, String base64Img, String mimeType) {
         GeminiRequest req = new GeminiRequest();
 
         // Parts: text + image
@@ -38,7 +51,7 @@ public class GeminiRequest {
 
         Part imagePart = new Part();
         imagePart.inlineData = new InlineData();
-        imagePart.inlineData.mimeType = "image/jpeg";
+        imagePart.inlineData.mimeType = mimeType;
         imagePart.inlineData.data = base64Img;
 
         List<Part> parts = new ArrayList<>();
@@ -1,5 +1,6 @@
 package com.calmahahh.app.api;
 
+import okhttp3.RequestBody;
 import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.POST;
@@ -13,12 +14,14 @@ import retrofit2.http.Query;
  * No credit card required.
  *
  * Endpoint: POST https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-flash:generateContent
+ * The body is a {@link GeminiImageBody}, which streams the image instead of
+ * letting Gson serialize a Base64 string.
  */
 public interface GeminiService {
 
     @POST("v1beta/models/gemini-2.5-flash:generateContent")
     Call<GeminiResponse> generateContent(
             @Query("key") String apiKey,
-            @Body GeminiRequest request
+            @Body RequestBody request
     );
 }
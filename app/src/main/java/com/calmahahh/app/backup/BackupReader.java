@@ -0,0 +1,13 @@
+package com.calmahahh.app.backup;
+
+import java.io.IOException;
+
+/** A backup file being read; implemented once per format */
+interface BackupReader {
+
+    /** Checks the file and returns the schema version it was written with */
+    int readHeader() throws IOException;
+
+    /** Streams every table and row that follows the header */
+    void readInto(BackupSink sink) throws IOException;
+}
@@ -0,0 +1,18 @@
+package com.calmahahh.app.backup;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives the tables of a backup one row at a time, in file order.
+ * Every backup format's reader feeds one of these, so restoring never
+ * holds more than a row in memory.
+ */
+public interface BackupSink {
+
+    /** Rows that follow belong to {@code table} and list values in {@code columns} order */
+    void beginTable(String table, List<String> columns) throws IOException;
+
+    /** One row; values are Long, Double, String or null */
+    void row(Object[] values) throws IOException;
+}
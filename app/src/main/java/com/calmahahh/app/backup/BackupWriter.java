@@ -0,0 +1,12 @@
+package com.calmahahh.app.backup;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.io.IOException;
+
+/** Writes tables to a backup file; implemented once per format */
+interface BackupWriter {
+
+    /** Writes the given tables and flushes, leaving the stream open. Returns the row count. */
+    long write(SupportSQLiteDatabase db, int schemaVersion, String[] tables) throws IOException;
+}
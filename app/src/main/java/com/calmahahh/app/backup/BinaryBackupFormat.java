@@ -0,0 +1,107 @@
+package com.calmahahh.app.backup;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Constants and primitives shared by the binary backup reader and writer.
+ *
+ * <pre>
+ * file   := MAGIC formatVersion:varint schemaVersion:varint table* END
+ * table  := TABLE name:string columnCount:varint name:string* block* TABLE_END
+ * block  := BLOCK rowCount:varint length:varint payload[length] crc32:int32
+ * payload:= column{columnCount}
+ * column := encoding:byte hasNulls:byte [nullBitmap] values
+ * </pre>
+ * Each block holds up to {@link #BLOCK_ROWS} rows stored column by column:
+ * <ul>
+ *   <li>{@link #ENC_INT_DELTA}: zigzag varint delta from the previous value,
+ *       so sorted ids and epoch-day dates take a byte or two</li>
+ *   <li>{@link #ENC_FIXED}: REAL as a zigzag varint of value * {@link #FIXED_SCALE}</li>
+ *   <li>{@link #ENC_DOUBLE}: raw IEEE-754, for reals that do not fit fixed-point</li>
+ *   <li>{@link #ENC_DICT}: block dictionary of distinct strings, then a varint index per row</li>
+ * </ul>
+ * Null values are marked in the bitmap and take no space in the values.
+ */
+final class BinaryBackupFormat {
+
+    static final byte[] MAGIC = {'C', 'M', 'B', 'K'};
+    static final int FORMAT_VERSION = 1;
+
+    static final int TABLE = 'T';
+    static final int BLOCK = 'B';
+    static final int TABLE_END = 'E';
+    static final int END = 'Z';
+
+    static final int ENC_INT_DELTA = 1;
+    static final int ENC_FIXED = 2;
+    static final int ENC_DOUBLE = 3;
+    static final int ENC_DICT = 4;
+
+    static final int BLOCK_ROWS = 4096;
+    /** Four decimal places; well below the 0.01 the app compares totals to */
+    static final double FIXED_SCALE = 10_000;
+    /** Largest magnitude stored as fixed-point; beyond this doubles lose integer precision */
+    static final double FIXED_LIMIT = (double) (1L << 52) / FIXED_SCALE;
+
+    private BinaryBackupFormat() {}
+
+    static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException("Truncated backup");
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeString(OutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(InputStream in) throws IOException {
+        int length = readLength(in, Integer.MAX_VALUE);
+        byte[] bytes = new byte[length];
+        readFully(in, bytes, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** A varint that must be a non-negative count no larger than {@code max} */
+    static int readLength(InputStream in, int max) throws IOException {
+        long length = readVarint(in);
+        if (length < 0 || length > max) throw new IOException("Bad length " + length);
+        return (int) length;
+    }
+
+    static void readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            int read = in.read(buffer, offset, length - offset);
+            if (read < 0) throw new EOFException("Truncated backup");
+            offset += read;
+        }
+    }
+}
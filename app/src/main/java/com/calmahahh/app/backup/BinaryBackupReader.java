@@ -0,0 +1,141 @@
+package com.calmahahh.app.backup;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static com.calmahahh.app.backup.BinaryBackupFormat.*;
+
+/**
+ * Reads a backup written by {@link BinaryBackupWriter} one block at a time,
+ * checking each block's CRC before any of its rows reach the sink.
+ */
+public class BinaryBackupReader implements BackupReader {
+
+    private static final int MAX_BLOCK_BYTES = 64 * 1024 * 1024;
+    private static final int MAX_COLUMNS = 1024;
+
+    private final DataInputStream in;
+    private final CRC32 crc = new CRC32();
+    private byte[] buffer = new byte[0];
+
+    public BinaryBackupReader(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    @Override
+    public int readHeader() throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        readFully(in, magic, magic.length);
+        if (!Arrays.equals(magic, MAGIC)) throw new IOException("Not a backup file");
+        long formatVersion = readVarint(in);
+        if (formatVersion > FORMAT_VERSION) {
+            throw new IOException("Backup format " + formatVersion + " is not supported");
+        }
+        return readLength(in, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void readInto(BackupSink sink) throws IOException {
+        String table = null;
+        int columnCount = 0;
+        int blockIndex = 0;
+        while (true) {
+            int tag = in.read();
+            if (tag == END) return;
+            if (tag < 0) throw new EOFException("Truncated backup");
+
+            if (tag == TABLE) {
+                table = readString(in);
+                columnCount = readLength(in, MAX_COLUMNS);
+                List<String> columns = new ArrayList<>(columnCount);
+                for (int i = 0; i < columnCount; i++) columns.add(readString(in));
+                sink.beginTable(table, columns);
+                blockIndex = 0;
+            } else if (tag == BLOCK && table != null) {
+                int n = readLength(in, BLOCK_ROWS);
+                int length = readLength(in, MAX_BLOCK_BYTES);
+                if (buffer.length < length) buffer = new byte[length];
+                readFully(in, buffer, length);
+                crc.reset();
+                crc.update(buffer, 0, length);
+                if (in.readInt() != (int) crc.getValue()) {
+                    throw new IOException("Block " + blockIndex + " of " + table + " is corrupted");
+                }
+
+                InputStream block = new ByteArrayInputStream(buffer, 0, length);
+                Object[][] columns = new Object[columnCount][];
+                for (int column = 0; column < columnCount; column++) {
+                    columns[column] = readColumn(block, n);
+                }
+                for (int r = 0; r < n; r++) {
+                    Object[] row = new Object[columnCount];
+                    for (int column = 0; column < columnCount; column++) row[column] = columns[column][r];
+                    sink.row(row);
+                }
+                blockIndex++;
+            } else if (tag == TABLE_END && table != null) {
+                table = null;
+            } else {
+                throw new IOException("Unexpected tag " + tag);
+            }
+        }
+    }
+
+    private static Object[] readColumn(InputStream block, int n) throws IOException {
+        int encoding = block.read();
+        int hasNulls = block.read();
+        if (hasNulls < 0) throw new EOFException("Truncated block");
+
+        byte[] bitmap = null;
+        if (hasNulls == 1) {
+            bitmap = new byte[(n + 7) / 8];
+            readFully(block, bitmap, bitmap.length);
+        }
+
+        String[] dictionary = null;
+        if (encoding == ENC_DICT) {
+            dictionary = new String[readLength(block, n)];
+            for (int i = 0; i < dictionary.length; i++) dictionary[i] = readString(block);
+        } else if (encoding != ENC_INT_DELTA && encoding != ENC_FIXED && encoding != ENC_DOUBLE) {
+            throw new IOException("Unknown column encoding " + encoding);
+        }
+
+        Object[] values = new Object[n];
+        long previous = 0;
+        for (int r = 0; r < n; r++) {
+            if (bitmap != null && (bitmap[r >> 3] & (1 << (r & 7))) != 0) continue;
+            switch (encoding) {
+                case ENC_INT_DELTA:
+                    previous += unzigzag(readVarint(block));
+                    values[r] = previous;
+                    break;
+                case ENC_FIXED:
+                    values[r] = unzigzag(readVarint(block)) / FIXED_SCALE;
+                    break;
+                case ENC_DOUBLE: {
+                    long bits = 0;
+                    for (int i = 0; i < 8; i++) {
+                        int b = block.read();
+                        if (b < 0) throw new EOFException("Truncated block");
+                        bits = (bits << 8) | b;
+                    }
+                    values[r] = Double.longBitsToDouble(bits);
+                    break;
+                }
+                default: {
+                    int index = readLength(block, dictionary.length - 1);
+                    values[r] = dictionary[index];
+                    break;
+                }
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,166 @@
+package com.calmahahh.app.backup;
+
+import android.database.Cursor;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static com.calmahahh.app.backup.BinaryBackupFormat.*;
+
+/**
+ * Streams tables to the columnar format described in {@link BinaryBackupFormat}.
+ * At most one block of rows is held in memory at a time.
+ */
+public class BinaryBackupWriter implements BackupWriter {
+
+    private final DataOutputStream out;
+    private final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    private final CRC32 crc = new CRC32();
+
+    public BinaryBackupWriter(OutputStream out) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+    }
+
+    @Override
+    public long write(SupportSQLiteDatabase db, int schemaVersion, String[] tables) throws IOException {
+        out.write(MAGIC);
+        writeVarint(out, FORMAT_VERSION);
+        writeVarint(out, schemaVersion);
+
+        long rows = 0;
+        Object[][] block = new Object[BLOCK_ROWS][];
+        for (String table : tables) {
+            try (Cursor c = db.query("SELECT * FROM `" + table + "`")) {
+                int columnCount = c.getColumnCount();
+                out.write(TABLE);
+                writeString(out, table);
+                writeVarint(out, columnCount);
+                for (String column : c.getColumnNames()) writeString(out, column);
+
+                int n = 0;
+                while (c.moveToNext()) {
+                    rows++;
+                    block[n++] = readRow(c, columnCount);
+                    if (n == BLOCK_ROWS) {
+                        writeBlock(block, n, columnCount);
+                        n = 0;
+                    }
+                }
+                if (n > 0) writeBlock(block, n, columnCount);
+                out.write(TABLE_END);
+            }
+        }
+        out.write(END);
+        out.flush();
+        return rows;
+    }
+
+    private static Object[] readRow(Cursor c, int columnCount) {
+        Object[] row = new Object[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            switch (c.getType(i)) {
+                case Cursor.FIELD_TYPE_INTEGER: row[i] = c.getLong(i); break;
+                case Cursor.FIELD_TYPE_FLOAT: row[i] = c.getDouble(i); break;
+                case Cursor.FIELD_TYPE_STRING: row[i] = c.getString(i); break;
+                default: row[i] = null; break;
+            }
+        }
+        return row;
+    }
+
+    private void writeBlock(Object[][] rows, int n, int columnCount) throws IOException {
+        payload.reset();
+        for (int column = 0; column < columnCount; column++) {
+            writeColumn(rows, n, column);
+        }
+        crc.reset();
+        byte[] bytes = payload.toByteArray();
+        crc.update(bytes);
+
+        out.write(BLOCK);
+        writeVarint(out, n);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private void writeColumn(Object[][] rows, int n, int column) throws IOException {
+        boolean hasNulls = false, anyString = false, anyReal = false, fixedFits = true;
+        for (int r = 0; r < n; r++) {
+            Object value = rows[r][column];
+            if (value == null) {
+                hasNulls = true;
+            } else if (value instanceof String) {
+                anyString = true;
+            } else if (value instanceof Double) {
+                anyReal = true;
+                double d = (Double) value;
+                if (Double.isNaN(d) || Math.abs(d) > FIXED_LIMIT) fixedFits = false;
+            }
+        }
+        int encoding = anyString ? ENC_DICT
+                : anyReal ? (fixedFits ? ENC_FIXED : ENC_DOUBLE)
+                : ENC_INT_DELTA;
+
+        payload.write(encoding);
+        payload.write(hasNulls ? 1 : 0);
+        if (hasNulls) {
+            byte[] bitmap = new byte[(n + 7) / 8];
+            for (int r = 0; r < n; r++) {
+                if (rows[r][column] == null) bitmap[r >> 3] |= (byte) (1 << (r & 7));
+            }
+            payload.write(bitmap);
+        }
+
+        switch (encoding) {
+            case ENC_INT_DELTA: {
+                long previous = 0;
+                for (int r = 0; r < n; r++) {
+                    Object value = rows[r][column];
+                    if (value == null) continue;
+                    long v = (Long) value;
+                    writeVarint(payload, zigzag(v - previous));
+                    previous = v;
+                }
+                break;
+            }
+            case ENC_FIXED:
+                for (int r = 0; r < n; r++) {
+                    Object value = rows[r][column];
+                    if (value == null) continue;
+                    writeVarint(payload, zigzag(Math.round(((Number) value).doubleValue() * FIXED_SCALE)));
+                }
+                break;
+            case ENC_DOUBLE:
+                for (int r = 0; r < n; r++) {
+                    Object value = rows[r][column];
+                    if (value == null) continue;
+                    long bits = Double.doubleToRawLongBits(((Number) value).doubleValue());
+                    for (int shift = 56; shift >= 0; shift -= 8) payload.write((int) (bits >>> shift));
+                }
+                break;
+            default: {
+                Map<String, Integer> dictionary = new LinkedHashMap<>();
+                for (int r = 0; r < n; r++) {
+                    Object value = rows[r][column];
+                    if (value != null) dictionary.putIfAbsent(value.toString(), dictionary.size());
+                }
+                writeVarint(payload, dictionary.size());
+                for (String word : dictionary.keySet()) writeString(payload, word);
+                for (int r = 0; r < n; r++) {
+                    Object value = rows[r][column];
+                    if (value != null) writeVarint(payload, dictionary.get(value.toString()));
+                }
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.calmahahh.app.backup;
+
+import android.content.Context;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.calmahahh.app.db.AppDatabase;
+import com.calmahahh.app.db.PlanTask;
+import com.calmahahh.app.notification.TaskNotificationManager;
+import com.calmahahh.app.util.CalorieStreak;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Export and restore of the user's data, as readable NDJSON or the compact
+ * binary format. Restore tells the two apart by the file's magic bytes.
+ *
+ * Only source tables are written; completion_days, stats_rollups and the
+ * food search index are derived and rebuilt after a restore. Both directions
+ * stream through a cursor or a reader, so memory use does not depend on the
+ * size of the history. Call off the main thread.
+ */
+public final class DatabaseBackup {
+
+    /** Backed-up tables, parents before children so foreign keys resolve on restore */
+    static final String[] TABLES = {
+            "plans", "plan_tasks", "task_completions", "workout_history",
+            "meal_entries", "daily_summary"
+    };
+
+    /** Schema version that replaced per-day task copies with a daysMask */
+    private static final int PER_DAY_TASKS_BEFORE = 11;
+
+    // Staging table in the pre-v11 plan_tasks shape; the defaults stand in for
+    // columns that even older backups lack
+    private static final String CREATE_LEGACY_PLAN_TASKS =
+            "CREATE TEMP TABLE legacy_plan_tasks (id INTEGER PRIMARY KEY, planId INTEGER NOT NULL, " +
+            "dayOfWeek TEXT, taskName TEXT, category TEXT, sets INTEGER NOT NULL DEFAULT 0, " +
+            "reps INTEGER NOT NULL DEFAULT 0, intensity TEXT, startTime TEXT, " +
+            "durationMinutes INTEGER NOT NULL DEFAULT 0, notes TEXT, " +
+            "reminderEnabled INTEGER NOT NULL DEFAULT 0, orderIndex INTEGER NOT NULL DEFAULT 0)";
+
+    private DatabaseBackup() {}
+
+    static boolean isBackedUp(String table) {
+        return Arrays.asList(TABLES).contains(table);
+    }
+
+    /** Writes every backed-up table as NDJSON. Returns the number of rows written. */
+    public static long exportNdjson(Context context, OutputStream out) throws IOException {
+        return export(context, new NdjsonBackupWriter(out));
+    }
+
+    /** Writes every backed-up table in the compact binary format. Returns the number of rows written. */
+    public static long exportBinary(Context context, OutputStream out) throws IOException {
+        return export(context, new BinaryBackupWriter(out));
+    }
+
+    /** Runs in one transaction so the tables are a consistent snapshot */
+    private static long export(Context context, BackupWriter writer) throws IOException {
+        AppDatabase db = AppDatabase.getInstance(context);
+        SupportSQLiteDatabase sqlite = db.getOpenHelper().getWritableDatabase();
+        try {
+            return db.runInTransaction(() -> {
+                try {
+                    return writer.write(sqlite, sqlite.getVersion(), TABLES);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** Picks the reader by the file's first bytes, so either format restores */
+    private static BackupReader openReader(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in);
+        byte[] head = new byte[BinaryBackupFormat.MAGIC.length];
+        buffered.mark(head.length);
+        int read = buffered.read(head);
+        buffered.reset();
+        return read == head.length && Arrays.equals(head, BinaryBackupFormat.MAGIC)
+                ? new BinaryBackupReader(buffered)
+                : new NdjsonBackupReader(buffered);
+    }
+
+    /**
+     * Replaces all data with the contents of a backup. The header is checked
+     * before anything is deleted, and the whole restore is one transaction,
+     * so a bad file leaves the current data untouched. Returns the number of
+     * rows restored.
+     */
+    public static long restore(Context context, InputStream in) throws IOException {
+        AppDatabase db = AppDatabase.getInstance(context);
+        SupportSQLiteDatabase sqlite = db.getOpenHelper().getWritableDatabase();
+
+        BackupReader reader = openReader(in);
+        int version = reader.readHeader();
+        if (version > sqlite.getVersion()) {
+            throw new IOException("Backup is from a newer version of the app");
+        }
+
+        List<PlanTask> oldReminders = db.planTaskDao().getTasksWithReminders();
+        TableRestorer restorer = new TableRestorer(sqlite);
+        boolean perDayTasks = version < PER_DAY_TASKS_BEFORE;
+        try {
+            db.runInTransaction(() -> {
+                // Completions and workout history of a pre-v11 backup point at
+                // per-day task ids that only exist once mergeDayCopies has run,
+                // so foreign keys are checked at commit rather than per row
+                sqlite.execSQL("PRAGMA defer_foreign_keys = ON");
+                if (perDayTasks) {
+                    sqlite.execSQL(CREATE_LEGACY_PLAN_TASKS);
+                    restorer.redirect("plan_tasks", "legacy_plan_tasks");
+                }
+                // Cleared up front so the meal_entries delete triggers have nothing
+                // to fix up; the insert triggers refill it during the restore
+                sqlite.execSQL("DELETE FROM food_names");
+                for (int i = TABLES.length - 1; i >= 0; i--) {
+                    sqlite.execSQL("DELETE FROM `" + TABLES[i] + "`");
+                }
+                try {
+                    reader.readInto(restorer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (perDayTasks) {
+                    AppDatabase.mergeDayCopies(sqlite, "legacy_plan_tasks", "plan_tasks");
+                    sqlite.execSQL("DROP TABLE legacy_plan_tasks");
+                }
+                db.taskCompletionDao().fillMissingPlanIds();
+                db.completionDayDao().rebuild(db.taskCompletionDao().getCompletedCountsByDate());
+                db.statsRollupDao().rebuildAll();
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            restorer.close();
+        }
+
+        for (PlanTask task : oldReminders) {
+            TaskNotificationManager.cancelTaskReminder(context, task.getId());
+        }
+        TaskNotificationManager.scheduleAllReminders(context);
+        CalorieStreak.invalidate(context);
+        return restorer.getRowCount();
+    }
+}
@@ -0,0 +1,91 @@
+package com.calmahahh.app.backup;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a backup written by {@link NdjsonBackupWriter} line by line.
+ * Call {@link #readHeader()} first so a bad file is rejected before
+ * anything is deleted.
+ */
+public class NdjsonBackupReader implements BackupReader {
+
+    private final BufferedReader in;
+    private int lineNumber;
+
+    public NdjsonBackupReader(InputStream in) {
+        this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public int readHeader() throws IOException {
+        String line = nextLine();
+        try {
+            JSONObject header = line == null ? null : new JSONObject(line);
+            if (header == null || !NdjsonBackupWriter.FORMAT.equals(header.optString("format"))) {
+                throw new IOException("Not a backup file");
+            }
+            return header.getInt("version");
+        } catch (JSONException e) {
+            throw new IOException("Not a backup file", e);
+        }
+    }
+
+    @Override
+    public void readInto(BackupSink sink) throws IOException {
+        boolean inTable = false;
+        String line;
+        while ((line = nextLine()) != null) {
+            if (line.isEmpty()) continue;
+            try {
+                if (line.charAt(0) == '{') {
+                    JSONObject table = new JSONObject(line);
+                    JSONArray names = table.getJSONArray("columns");
+                    List<String> columns = new ArrayList<>(names.length());
+                    for (int i = 0; i < names.length(); i++) columns.add(names.getString(i));
+                    sink.beginTable(table.getString("table"), columns);
+                    inTable = true;
+                } else if (inTable) {
+                    sink.row(toValues(new JSONArray(line)));
+                } else {
+                    throw new IOException("Row before any table");
+                }
+            } catch (JSONException | IOException e) {
+                throw new IOException("Line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static Object[] toValues(JSONArray row) {
+        Object[] values = new Object[row.length()];
+        for (int i = 0; i < values.length; i++) {
+            Object value = row.opt(i);
+            if (value == null || value == JSONObject.NULL) {
+                values[i] = null;
+            } else if (value instanceof Integer || value instanceof Long) {
+                values[i] = ((Number) value).longValue();
+            } else if (value instanceof Number) {
+                values[i] = ((Number) value).doubleValue();
+            } else if (value instanceof Boolean) {
+                values[i] = (Boolean) value ? 1L : 0L;
+            } else {
+                values[i] = value.toString();
+            }
+        }
+        return values;
+    }
+
+    private String nextLine() throws IOException {
+        lineNumber++;
+        return in.readLine();
+    }
+}
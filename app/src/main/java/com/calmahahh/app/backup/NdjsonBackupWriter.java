@@ -0,0 +1,76 @@
+package com.calmahahh.app.backup;
+
+import android.database.Cursor;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams tables to newline-delimited JSON straight from a cursor.
+ *
+ * Layout, one JSON value per line:
+ * <pre>
+ * {"format":"calmahahh-ndjson","version":9}
+ * {"table":"plans","columns":["id","name",...]}
+ * [1,"Leg day",...]
+ * ...
+ * </pre>
+ * Rows are positional arrays matching the preceding table line.
+ */
+public class NdjsonBackupWriter implements BackupWriter {
+
+    static final String FORMAT = "calmahahh-ndjson";
+
+    private final Writer out;
+
+    public NdjsonBackupWriter(OutputStream out) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public long write(SupportSQLiteDatabase db, int schemaVersion, String[] tables) throws IOException {
+        long rows = 0;
+        try {
+            writeLine(new JSONObject().put("format", FORMAT).put("version", schemaVersion));
+            for (String table : tables) {
+                try (Cursor c = db.query("SELECT * FROM `" + table + "`")) {
+                    writeLine(new JSONObject().put("table", table)
+                            .put("columns", new JSONArray(c.getColumnNames())));
+                    int columnCount = c.getColumnCount();
+                    while (c.moveToNext()) {
+                        JSONArray row = new JSONArray();
+                        for (int i = 0; i < columnCount; i++) {
+                            switch (c.getType(i)) {
+                                case Cursor.FIELD_TYPE_INTEGER: row.put(c.getLong(i)); break;
+                                case Cursor.FIELD_TYPE_FLOAT: row.put(c.getDouble(i)); break;
+                                case Cursor.FIELD_TYPE_STRING: row.put(c.getString(i)); break;
+                                default: row.put(JSONObject.NULL); break;
+                            }
+                        }
+                        writeLine(row.toString());
+                        rows++;
+                    }
+                }
+            }
+        } catch (JSONException e) {
+            throw new IOException("Cannot encode row", e);
+        }
+        out.flush();
+        return rows;
+    }
+
+    private void writeLine(Object value) throws IOException {
+        out.write(value.toString());
+        out.write('\n');
+    }
+}
@@ -0,0 +1,116 @@
+package com.calmahahh.app.backup;
+
+import android.database.Cursor;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes backup rows into the live tables with one compiled INSERT per table.
+ *
+ * Columns the current schema no longer has are dropped and columns the
+ * backup lacks take their defaults, so backups from older versions restore.
+ * Tables outside {@link DatabaseBackup#TABLES} are skipped. Must run inside
+ * the restore transaction. A table can be redirected into a staging table
+ * when its rows need reshaping before they reach the live one.
+ */
+class TableRestorer implements BackupSink {
+
+    private final SupportSQLiteDatabase db;
+    private final Map<String, String> redirects = new HashMap<>();
+    private SupportSQLiteStatement insert;
+    private int[] bindIndex;  // backup column -> bind position, 0 to drop
+    private long rowCount;
+
+    TableRestorer(SupportSQLiteDatabase db) {
+        this.db = db;
+    }
+
+    /** Writes rows of a backed-up table into target instead */
+    void redirect(String table, String target) {
+        redirects.put(table, target);
+    }
+
+    @Override
+    public void beginTable(String backupTable, List<String> columns) throws IOException {
+        closeStatement();
+        if (!DatabaseBackup.isBackedUp(backupTable)) return;
+        String table = redirects.getOrDefault(backupTable, backupTable);
+
+        Set<String> live = liveColumns(table);
+        List<String> kept = new ArrayList<>();
+        bindIndex = new int[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            if (live.contains(columns.get(i))) {
+                kept.add("`" + columns.get(i) + "`");
+                bindIndex[i] = kept.size();
+            }
+        }
+        if (kept.isEmpty()) throw new IOException("No known columns for " + table);
+
+        StringBuilder sql = new StringBuilder("INSERT OR REPLACE INTO `").append(table).append("` (")
+                .append(String.join(", ", kept)).append(") VALUES (");
+        for (int i = 0; i < kept.size(); i++) sql.append(i == 0 ? "?" : ", ?");
+        insert = db.compileStatement(sql.append(')').toString());
+    }
+
+    @Override
+    public void row(Object[] values) throws IOException {
+        if (insert == null) return;
+        if (values.length != bindIndex.length) {
+            throw new IOException("Expected " + bindIndex.length + " values, got " + values.length);
+        }
+        insert.clearBindings();
+        for (int i = 0; i < values.length; i++) {
+            int index = bindIndex[i];
+            if (index == 0) continue;
+            Object value = values[i];
+            if (value == null) {
+                insert.bindNull(index);
+            } else if (value instanceof Long) {
+                insert.bindLong(index, (Long) value);
+            } else if (value instanceof Double) {
+                insert.bindDouble(index, (Double) value);
+            } else {
+                insert.bindString(index, value.toString());
+            }
+        }
+        insert.executeInsert();
+        rowCount++;
+    }
+
+    long getRowCount() {
+        return rowCount;
+    }
+
+    void close() {
+        closeStatement();
+    }
+
+    private void closeStatement() {
+        if (insert == null) return;
+        try {
+            insert.close();
+        } catch (IOException ignored) {
+            // Closing a compiled statement only releases it
+        }
+        insert = null;
+    }
+
+    private Set<String> liveColumns(String table) {
+        Set<String> columns = new HashSet<>();
+        try (Cursor c = db.query("PRAGMA table_info(`" + table + "`)")) {
+            int name = c.getColumnIndexOrThrow("name");
+            while (c.moveToNext()) columns.add(c.getString(name));
+        }
+        return columns;
+    }
+}
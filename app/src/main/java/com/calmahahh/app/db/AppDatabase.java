@@ -2,9 +2,20 @@ package com.calmahahh.app.db;
 
 import android.content.Context;
 
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Room database for the CalMahAhh app.
@@ -16,18 +27,424 @@ import androidx.room.RoomDatabase;
         Plan.class,
         PlanTask.class,
         TaskCompletion.class,
-        WorkoutHistory.class
-}, version = 2, exportSchema = false)
+        WorkoutHistory.class,
+        CompletionDay.class,
+        StatsRollup.class,
+        ScanCacheEntry.class,
+        FoodName.class,
+        FoodNameFts.class
+}, version = 14, exportSchema = false)
+@TypeConverters(DateConverters.class)
 public abstract class AppDatabase extends RoomDatabase {
 
     private static volatile AppDatabase INSTANCE;
 
+    // WAL lets readers run while a write commits; writes stay on one thread
+    private static final DbExecutor READ_EXECUTOR = new DbExecutor("db-read", 3);
+    private static final DbExecutor WRITE_EXECUTOR = new DbExecutor("db-write", 1);
+
+    /** Executor for queries that only read. Shared by all screens; never shut it down. */
+    public static DbExecutor readExecutor() {
+        return READ_EXECUTOR;
+    }
+
+    /** Executor for inserts, updates, deletes and read-modify-write sequences */
+    public static DbExecutor writeExecutor() {
+        return WRITE_EXECUTOR;
+    }
+
     public abstract DailySummaryDao dailySummaryDao();
     public abstract MealEntryDao mealEntryDao();
     public abstract PlanDao planDao();
     public abstract PlanTaskDao planTaskDao();
     public abstract TaskCompletionDao taskCompletionDao();
     public abstract WorkoutHistoryDao workoutHistoryDao();
+    public abstract CompletionDayDao completionDayDao();
+    public abstract StatsRollupDao statsRollupDao();
+    public abstract ScanCacheDao scanCacheDao();
+
+    /** v3: completion_days streak index, backfilled from task_completions */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `completion_days` (`epochDay` INTEGER NOT NULL, " +
+                    "`completedCount` INTEGER NOT NULL, `runLength` INTEGER NOT NULL, PRIMARY KEY(`epochDay`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_completion_days_runLength` " +
+                    "ON `completion_days` (`runLength`)");
+
+            List<DateCount> counts = new ArrayList<>();
+            try (Cursor c = db.query("SELECT date, COUNT(*) FROM task_completions " +
+                    "WHERE completed = 1 AND date IS NOT NULL GROUP BY date ORDER BY date")) {
+                while (c.moveToNext()) {
+                    counts.add(new DateCount(LocalDate.parse(c.getString(0)), c.getInt(1)));
+                }
+            }
+            insertCompletionDays(db, counts);
+        }
+    };
+
+    private static void insertCompletionDays(SupportSQLiteDatabase db, List<DateCount> counts) {
+        for (CompletionDay day : CompletionDay.fromDateCounts(counts)) {
+            db.execSQL("INSERT INTO completion_days (epochDay, completedCount, runLength) VALUES (?, ?, ?)",
+                    new Object[]{day.epochDay, day.completedCount, day.runLength});
+        }
+    }
+
+    /** SQL expression converting a yyyy-MM-dd TEXT column to an epoch day */
+    private static String epochDay(String column) {
+        return "CAST(julianday(" + column + ") - 2440587.5 AS INTEGER)";
+    }
+
+    /**
+     * v4: every date column changes from yyyy-MM-dd TEXT to an INTEGER epoch day.
+     * SQLite cannot change a column type in place, so each table is rebuilt and copied.
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `meal_entries_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`date` INTEGER NOT NULL, `mealType` TEXT NOT NULL, `foodName` TEXT NOT NULL, " +
+                    "`calories` REAL NOT NULL, `protein` REAL NOT NULL, `carbs` REAL NOT NULL, " +
+                    "`fat` REAL NOT NULL, `grams` REAL NOT NULL)");
+            db.execSQL("INSERT INTO meal_entries_new (id, date, mealType, foodName, calories, protein, carbs, fat, grams) " +
+                    "SELECT id, " + epochDay("date") + ", mealType, foodName, calories, protein, carbs, fat, grams " +
+                    "FROM meal_entries");
+            db.execSQL("DROP TABLE meal_entries");
+            db.execSQL("ALTER TABLE meal_entries_new RENAME TO meal_entries");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_meal_entries_date` ON `meal_entries` (`date`)");
+
+            db.execSQL("CREATE TABLE IF NOT EXISTS `daily_summary_new` (`date` INTEGER NOT NULL, " +
+                    "`totalCalories` REAL NOT NULL, `totalProtein` REAL NOT NULL, `totalCarbs` REAL NOT NULL, " +
+                    "`totalFat` REAL NOT NULL, `targetCalories` INTEGER NOT NULL, PRIMARY KEY(`date`))");
+            db.execSQL("INSERT OR REPLACE INTO daily_summary_new (date, totalCalories, totalProtein, totalCarbs, totalFat, targetCalories) " +
+                    "SELECT " + epochDay("date") + ", totalCalories, totalProtein, totalCarbs, totalFat, targetCalories " +
+                    "FROM daily_summary");
+            db.execSQL("DROP TABLE daily_summary");
+            db.execSQL("ALTER TABLE daily_summary_new RENAME TO daily_summary");
+
+            db.execSQL("CREATE TABLE IF NOT EXISTS `task_completions_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`taskId` INTEGER NOT NULL, `date` INTEGER, `completed` INTEGER NOT NULL, " +
+                    "`completedAt` INTEGER NOT NULL, `planName` TEXT, `taskName` TEXT, `category` TEXT, " +
+                    "FOREIGN KEY(`taskId`) REFERENCES `plan_tasks`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("INSERT INTO task_completions_new (id, taskId, date, completed, completedAt, planName, taskName, category) " +
+                    "SELECT id, taskId, " + epochDay("date") + ", completed, completedAt, planName, taskName, category " +
+                    "FROM task_completions");
+            db.execSQL("DROP TABLE task_completions");
+            db.execSQL("ALTER TABLE task_completions_new RENAME TO task_completions");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_task_completions_taskId` ON `task_completions` (`taskId`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_task_completions_date` ON `task_completions` (`date`)");
+
+            db.execSQL("CREATE TABLE IF NOT EXISTS `workout_history_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`taskId` INTEGER NOT NULL, `date` INTEGER, `exerciseName` TEXT, `weight` REAL NOT NULL, " +
+                    "`sets` INTEGER NOT NULL, `reps` INTEGER NOT NULL, `notes` TEXT, " +
+                    "FOREIGN KEY(`taskId`) REFERENCES `plan_tasks`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("INSERT INTO workout_history_new (id, taskId, date, exerciseName, weight, sets, reps, notes) " +
+                    "SELECT id, taskId, " + epochDay("date") + ", exerciseName, weight, sets, reps, notes " +
+                    "FROM workout_history");
+            db.execSQL("DROP TABLE workout_history");
+            db.execSQL("ALTER TABLE workout_history_new RENAME TO workout_history");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_workout_history_taskId` ON `workout_history` (`taskId`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_workout_history_date` ON `workout_history` (`date`)");
+        }
+    };
+
+    /** v5: indexes for the meal, reminder and exercise lookups */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            // (date, mealType) also serves every date-only lookup
+            db.execSQL("DROP INDEX IF EXISTS `index_meal_entries_date`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_meal_entries_date_mealType` " +
+                    "ON `meal_entries` (`date`, `mealType`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_plan_tasks_reminderEnabled` " +
+                    "ON `plan_tasks` (`reminderEnabled`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_workout_history_exerciseName_date` " +
+                    "ON `workout_history` (`exerciseName`, `date`)");
+        }
+    };
+
+    /** v6: (date, id) index backing the keyset-paged meal history */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_meal_entries_date_id` " +
+                    "ON `meal_entries` (`date`, `id`)");
+        }
+    };
+
+    /**
+     * v7: meal_entries_fts full-text index over food names. The triggers match
+     * the ones Room generates for an external-content FTS table. Replaced by
+     * food_names_fts and dropped in v14.
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `meal_entries_fts` " +
+                    "USING FTS4(`foodName` TEXT, content=`meal_entries`)");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_meal_entries_fts_BEFORE_UPDATE " +
+                    "BEFORE UPDATE ON `meal_entries` BEGIN DELETE FROM `meal_entries_fts` " +
+                    "WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_meal_entries_fts_BEFORE_DELETE " +
+                    "BEFORE DELETE ON `meal_entries` BEGIN DELETE FROM `meal_entries_fts` " +
+                    "WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_meal_entries_fts_AFTER_UPDATE " +
+                    "AFTER UPDATE ON `meal_entries` BEGIN INSERT INTO `meal_entries_fts`(`docid`, `foodName`) " +
+                    "VALUES (NEW.`rowid`, NEW.`foodName`); END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_meal_entries_fts_AFTER_INSERT " +
+                    "AFTER INSERT ON `meal_entries` BEGIN INSERT INTO `meal_entries_fts`(`docid`, `foodName`) " +
+                    "VALUES (NEW.`rowid`, NEW.`foodName`); END");
+            // Index the entries logged before this version
+            db.execSQL("INSERT INTO meal_entries_fts(meal_entries_fts) VALUES('rebuild')");
+        }
+    };
+
+    /** v8: week/month/year rollups, backfilled from the day tables */
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `stats_rollups` (`tier` INTEGER NOT NULL, " +
+                    "`periodStart` INTEGER NOT NULL, `loggedDays` INTEGER NOT NULL, " +
+                    "`totalCalories` REAL NOT NULL, `totalProtein` REAL NOT NULL, " +
+                    "`totalCarbs` REAL NOT NULL, `totalFat` REAL NOT NULL, " +
+                    "`completedTasks` INTEGER NOT NULL, PRIMARY KEY(`tier`, `periodStart`))");
+            db.execSQL(StatsRollupDao.WEEK_ROLLUP + " GROUP BY period");
+            db.execSQL(StatsRollupDao.MONTH_ROLLUP + " GROUP BY period");
+            db.execSQL(StatsRollupDao.YEAR_ROLLUP + " GROUP BY period");
+        }
+    };
+
+    /** v9: meal_entries.compacted marks rows folded by the history compaction job */
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `meal_entries` ADD COLUMN `compacted` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    /**
+     * v10: task_completions references its plan by id instead of copying plan,
+     * task and category names, with one row per task and date. Duplicate rows
+     * keep the latest, so the streak index and rollups are rebuilt.
+     */
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `task_completions_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`taskId` INTEGER NOT NULL, `planId` INTEGER NOT NULL DEFAULT 0, `date` INTEGER, " +
+                    "`completed` INTEGER NOT NULL, `completedAt` INTEGER NOT NULL, " +
+                    "FOREIGN KEY(`taskId`) REFERENCES `plan_tasks`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("INSERT INTO task_completions_new (id, taskId, planId, date, completed, completedAt) " +
+                    "SELECT c.id, c.taskId, t.planId, c.date, c.completed, c.completedAt " +
+                    "FROM task_completions c INNER JOIN plan_tasks t ON t.id = c.taskId " +
+                    "WHERE c.id IN (SELECT MAX(id) FROM task_completions GROUP BY taskId, date)");
+            db.execSQL("DROP TABLE task_completions");
+            db.execSQL("ALTER TABLE task_completions_new RENAME TO task_completions");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_task_completions_taskId_date` " +
+                    "ON `task_completions` (`taskId`, `date`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_task_completions_planId_date` " +
+                    "ON `task_completions` (`planId`, `date`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_task_completions_date` ON `task_completions` (`date`)");
+            rebuildCompletionStats(db);
+        }
+    };
+
+    /** Recomputes completion_days and the rollups after a migration changed task_completions */
+    private static void rebuildCompletionStats(SupportSQLiteDatabase db) {
+        List<DateCount> counts = new ArrayList<>();
+        try (Cursor c = db.query("SELECT date, COUNT(*) FROM task_completions " +
+                "WHERE completed = 1 AND date IS NOT NULL GROUP BY date ORDER BY date")) {
+            while (c.moveToNext()) {
+                counts.add(new DateCount(LocalDate.ofEpochDay(c.getLong(0)), c.getInt(1)));
+            }
+        }
+        db.execSQL("DELETE FROM completion_days");
+        insertCompletionDays(db, counts);
+
+        db.execSQL("DELETE FROM stats_rollups");
+        db.execSQL(StatsRollupDao.WEEK_ROLLUP + " GROUP BY period");
+        db.execSQL(StatsRollupDao.MONTH_ROLLUP + " GROUP BY period");
+        db.execSQL(StatsRollupDao.YEAR_ROLLUP + " GROUP BY period");
+    }
+
+    /** Columns that must match for per-day copies of a task to be merged */
+    private static final String TASK_IDENTITY = "planId, taskName, category, sets, reps, intensity, " +
+            "startTime, durationMinutes, notes, reminderEnabled";
+
+    /** Join condition matching two aliases on TASK_IDENTITY; IS matches nulls too */
+    private static String sameTask(String a, String b) {
+        StringBuilder sameTask = new StringBuilder();
+        for (String column : TASK_IDENTITY.split(", ")) {
+            if (sameTask.length() > 0) sameTask.append(" AND ");
+            sameTask.append(a).append('.').append(column).append(" IS ").append(b).append('.').append(column);
+        }
+        return sameTask.toString();
+    }
+
+    /**
+     * Old task id -> merged task id, written by MIGRATION_10_11 and dropped once
+     * TaskNotificationManager has replaced the alarms set under the old ids.
+     */
+    public static final String LEGACY_TASK_IDS = "legacy_task_ids";
+
+    /**
+     * Merges per-day task copies from source, a table in the pre-v11 plan_tasks
+     * shape with one row per dayOfWeek, into target as one row per task with a
+     * daysMask. Copies that differ only by day collapse into the lowest id, and
+     * task_completions and workout_history are pointed at it. Also used to
+     * restore backups written before v11.
+     */
+    public static void mergeDayCopies(SupportSQLiteDatabase db, String source, String target) {
+        String dayBit = "CASE dayOfWeek WHEN 'Monday' THEN 1 WHEN 'Tuesday' THEN 2 " +
+                "WHEN 'Wednesday' THEN 4 WHEN 'Thursday' THEN 8 WHEN 'Friday' THEN 16 " +
+                "WHEN 'Saturday' THEN 32 WHEN 'Sunday' THEN 64 ELSE 0 END";
+
+        // Old id -> id of the row it merges into
+        db.execSQL("CREATE TEMP TABLE task_merge AS SELECT t.id AS oldId, k.keepId FROM `" + source + "` t " +
+                "INNER JOIN (SELECT MIN(id) AS keepId, " + TASK_IDENTITY + " FROM `" + source + "` " +
+                "GROUP BY " + TASK_IDENTITY + ") k ON " + sameTask("t", "k"));
+
+        // Day bits are distinct powers of two, so summing the distinct ones ORs them
+        db.execSQL("INSERT INTO `" + target + "` (id, planId, daysMask, taskName, category, sets, reps, " +
+                "intensity, startTime, durationMinutes, notes, reminderEnabled, orderIndex) " +
+                "SELECT MIN(id), planId, SUM(DISTINCT " + dayBit + "), taskName, category, sets, reps, " +
+                "intensity, startTime, durationMinutes, notes, reminderEnabled, MIN(orderIndex) " +
+                "FROM `" + source + "` GROUP BY " + TASK_IDENTITY);
+
+        // Two merged copies completed on the same date collapse into one row
+        db.execSQL("UPDATE OR REPLACE task_completions SET taskId = " +
+                "(SELECT keepId FROM task_merge WHERE oldId = task_completions.taskId) " +
+                "WHERE taskId IN (SELECT oldId FROM task_merge WHERE oldId != keepId)");
+        db.execSQL("UPDATE workout_history SET taskId = " +
+                "(SELECT keepId FROM task_merge WHERE oldId = workout_history.taskId) " +
+                "WHERE taskId IN (SELECT oldId FROM task_merge WHERE oldId != keepId)");
+        db.execSQL("DROP TABLE task_merge");
+    }
+
+    /**
+     * v11: a task repeats on the days in its daysMask instead of being copied
+     * once per dayOfWeek; see {@link #mergeDayCopies}. Completion state now
+     * lives only in task_completions.
+     */
+    static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `plan_tasks_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`planId` INTEGER NOT NULL, `daysMask` INTEGER NOT NULL, `taskName` TEXT, `category` TEXT, " +
+                    "`sets` INTEGER NOT NULL, `reps` INTEGER NOT NULL, `intensity` TEXT, `startTime` TEXT, " +
+                    "`durationMinutes` INTEGER NOT NULL, `notes` TEXT, `reminderEnabled` INTEGER NOT NULL, " +
+                    "`orderIndex` INTEGER NOT NULL, " +
+                    "FOREIGN KEY(`planId`) REFERENCES `plans`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            mergeDayCopies(db, "plan_tasks", "plan_tasks_new");
+            // Alarms are keyed by the old ids; keep them until the reminders are rescheduled
+            db.execSQL("CREATE TABLE IF NOT EXISTS `" + LEGACY_TASK_IDS + "` " +
+                    "(`oldId` INTEGER PRIMARY KEY NOT NULL, `keepId` INTEGER NOT NULL)");
+            db.execSQL("INSERT INTO `" + LEGACY_TASK_IDS + "` SELECT t.id, k.id FROM plan_tasks t " +
+                    "INNER JOIN plan_tasks_new k ON " + sameTask("t", "k"));
+
+            db.execSQL("DROP TABLE plan_tasks");
+            db.execSQL("ALTER TABLE plan_tasks_new RENAME TO plan_tasks");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_plan_tasks_planId` ON `plan_tasks` (`planId`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_plan_tasks_reminderEnabled` " +
+                    "ON `plan_tasks` (`reminderEnabled`)");
+            rebuildCompletionStats(db);
+        }
+    };
+
+    /** v12: scan_cache of parsed food scans by perceptual hash */
+    static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `scan_cache` (`imageHash` INTEGER NOT NULL, " +
+                    "`context` TEXT NOT NULL, `foodsJson` TEXT NOT NULL, `createdAt` INTEGER NOT NULL, " +
+                    "`lastUsedAt` INTEGER NOT NULL, PRIMARY KEY(`imageHash`, `context`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_scan_cache_lastUsedAt` " +
+                    "ON `scan_cache` (`lastUsedAt`)");
+        }
+    };
+
+    // Keeps food_names on the latest uncompacted entry of each name. Deleting or
+    // renaming that entry falls back to the next newest one, found by walking
+    // ids down from the top, which stops early for any food logged recently.
+    private static final String FOOD_NAME_UPSERT =
+            "UPDATE food_names SET latestId = NEW.id, foodName = NEW.foodName " +
+            "WHERE nameKey = lower(NEW.foodName) AND latestId < NEW.id; " +
+            "INSERT OR IGNORE INTO food_names (nameKey, foodName, latestId) " +
+            "VALUES (lower(NEW.foodName), NEW.foodName, NEW.id); ";
+    private static final String FOOD_NAME_WAS_LATEST =
+            "EXISTS (SELECT 1 FROM food_names WHERE nameKey = lower(OLD.foodName) AND latestId = OLD.id)";
+    private static final String FOOD_NAME_REPLACE_LATEST =
+            "DELETE FROM food_names WHERE nameKey = lower(OLD.foodName); " +
+            "INSERT OR IGNORE INTO food_names (nameKey, foodName, latestId) " +
+            "SELECT lower(foodName), foodName, id FROM meal_entries " +
+            "WHERE lower(foodName) = lower(OLD.foodName) AND compacted = 0 " +
+            "ORDER BY id DESC LIMIT 1; ";
+
+    /**
+     * Triggers on meal_entries that maintain food_names. Room does not know about
+     * them, so they are created on a fresh database and by MIGRATION_12_13; any
+     * later migration that rebuilds meal_entries must recreate them.
+     */
+    static void createFoodNameTriggers(SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS food_names_after_insert AFTER INSERT ON meal_entries " +
+                "WHEN NEW.compacted = 0 BEGIN " + FOOD_NAME_UPSERT + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS food_names_after_update_new " +
+                "AFTER UPDATE OF foodName, compacted ON meal_entries " +
+                "WHEN NEW.compacted = 0 BEGIN " + FOOD_NAME_UPSERT + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS food_names_after_update_old " +
+                "AFTER UPDATE OF foodName, compacted ON meal_entries " +
+                "WHEN " + FOOD_NAME_WAS_LATEST + " BEGIN " + FOOD_NAME_REPLACE_LATEST + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS food_names_after_delete AFTER DELETE ON meal_entries " +
+                "WHEN " + FOOD_NAME_WAS_LATEST + " BEGIN " + FOOD_NAME_REPLACE_LATEST + "END");
+    }
+
+    /**
+     * v13: food_names, one row per distinct food with its latest entry, and an
+     * FTS index over it so food search no longer groups every matching entry.
+     */
+    static final Migration MIGRATION_12_13 = new Migration(12, 13) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `food_names` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`nameKey` TEXT NOT NULL, `foodName` TEXT NOT NULL, `latestId` INTEGER NOT NULL)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_food_names_nameKey` " +
+                    "ON `food_names` (`nameKey`)");
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `food_names_fts` " +
+                    "USING FTS4(`foodName` TEXT, content=`food_names`)");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_food_names_fts_BEFORE_UPDATE " +
+                    "BEFORE UPDATE ON `food_names` BEGIN DELETE FROM `food_names_fts` " +
+                    "WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_food_names_fts_BEFORE_DELETE " +
+                    "BEFORE DELETE ON `food_names` BEGIN DELETE FROM `food_names_fts` " +
+                    "WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_food_names_fts_AFTER_UPDATE " +
+                    "AFTER UPDATE ON `food_names` BEGIN INSERT INTO `food_names_fts`(`docid`, `foodName`) " +
+                    "VALUES (NEW.`rowid`, NEW.`foodName`); END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_food_names_fts_AFTER_INSERT " +
+                    "AFTER INSERT ON `food_names` BEGIN INSERT INTO `food_names_fts`(`docid`, `foodName`) " +
+                    "VALUES (NEW.`rowid`, NEW.`foodName`); END");
+            // MAX() makes the bare foodName come from the latest row of each group
+            db.execSQL("INSERT INTO food_names (nameKey, foodName, latestId) " +
+                    "SELECT lower(foodName), foodName, MAX(id) FROM meal_entries " +
+                    "WHERE compacted = 0 GROUP BY lower(foodName)");
+            createFoodNameTriggers(db);
+        }
+    };
+
+    /**
+     * v14: drops meal_entries_fts. Food search moved to food_names_fts in v13,
+     * and its sync triggers still ran on every meal_entries write.
+     */
+    static final Migration MIGRATION_13_14 = new Migration(13, 14) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("DROP TRIGGER IF EXISTS room_fts_content_sync_meal_entries_fts_BEFORE_UPDATE");
+            db.execSQL("DROP TRIGGER IF EXISTS room_fts_content_sync_meal_entries_fts_BEFORE_DELETE");
+            db.execSQL("DROP TRIGGER IF EXISTS room_fts_content_sync_meal_entries_fts_AFTER_UPDATE");
+            db.execSQL("DROP TRIGGER IF EXISTS room_fts_content_sync_meal_entries_fts_AFTER_INSERT");
+            db.execSQL("DROP TABLE IF EXISTS `meal_entries_fts`");
+        }
+    };
 
     public static AppDatabase getInstance(Context context) {
         if (INSTANCE == null) {
@@ -37,11 +454,39 @@ public abstract class AppDatabase extends RoomDatabase {
                             context.getApplicationContext(),
                             AppDatabase.class,
                             "calmahahh_database"
-                    ).fallbackToDestructiveMigration()
+                    ).addMigrations(MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8,
+                            MIGRATION_8_9, MIGRATION_9_10, MIGRATION_10_11, MIGRATION_11_12,
+                            MIGRATION_12_13, MIGRATION_13_14)
+                     .fallbackToDestructiveMigrationFrom(1)
+                     .addCallback(new Callback() {
+                         @Override
+                         public void onCreate(@NonNull SupportSQLiteDatabase db) {
+                             createFoodNameTriggers(db);
+                         }
+
+                         @Override
+                         public void onDestructiveMigration(@NonNull SupportSQLiteDatabase db) {
+                             createFoodNameTriggers(db);
+                         }
+                     })
+                     .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING)
+                     .setQueryExecutor(READ_EXECUTOR)
+                     .setTransactionExecutor(WRITE_EXECUTOR)
                      .build();
                 }
             }
         }
         return INSTANCE;
     }
+
+    /** Closes the shared instance so the next {@link #getInstance} opens the database afresh */
+    @VisibleForTesting
+    public static void destroyInstance() {
+        synchronized (AppDatabase.class) {
+            if (INSTANCE != null) {
+                INSTANCE.close();
+                INSTANCE = null;
+            }
+        }
+    }
 }
@@ -0,0 +1,48 @@
+package com.calmahahh.app.db;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Index of days with at least one completed planner task, keyed by epoch day.
+ * runLength is the length of the consecutive run of completed days ending on
+ * this day, so the current streak is one primary-key read and the longest
+ * streak is MAX(runLength).
+ */
+@Entity(tableName = "completion_days", indices = {@Index("runLength")})
+public class CompletionDay {
+
+    @PrimaryKey
+    public long epochDay; // LocalDate.toEpochDay()
+
+    public int completedCount;
+    public int runLength;
+
+    public CompletionDay(long epochDay, int completedCount, int runLength) {
+        this.epochDay = epochDay;
+        this.completedCount = completedCount;
+        this.runLength = runLength;
+    }
+
+    /**
+     * Builds index rows (with run lengths) from per-date completed counts.
+     * @param counts dates with their completed count, ascending by date
+     */
+    public static List<CompletionDay> fromDateCounts(List<DateCount> counts) {
+        List<CompletionDay> days = new ArrayList<>();
+        long prevDay = Long.MIN_VALUE;
+        int run = 0;
+        for (DateCount dc : counts) {
+            if (dc.count <= 0) continue;
+            long day = dc.date.toEpochDay();
+            run = day == prevDay + 1 ? run + 1 : 1;
+            days.add(new CompletionDay(day, dc.count, run));
+            prevDay = day;
+        }
+        return days;
+    }
+}
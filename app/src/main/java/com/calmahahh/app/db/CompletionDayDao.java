@@ -0,0 +1,63 @@
+package com.calmahahh.app.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Data Access Object for the planner completion-day streak index.
+ */
+@Dao
+public interface CompletionDayDao extends StatsRollupRefresh {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(CompletionDay day);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertAll(List<CompletionDay> days);
+
+    @Query("SELECT * FROM completion_days WHERE epochDay = :epochDay")
+    CompletionDay getDay(long epochDay);
+
+    @Query("DELETE FROM completion_days WHERE epochDay = :epochDay")
+    void deleteDay(long epochDay);
+
+    @Query("DELETE FROM completion_days")
+    void clear();
+
+    @Query("SELECT COALESCE(MAX(runLength), 0) FROM completion_days")
+    int getLongestStreak();
+
+    default int getCurrentStreak(long todayEpochDay) {
+        CompletionDay day = getDay(todayEpochDay);
+        return day != null ? day.runLength : 0;
+    }
+
+    /**
+     * Updates the index and the stats rollups after today's completions
+     * changed. Only the newest day may be updated this way; past days need
+     * {@link #rebuild(List)}. Run it in the completion write's transaction.
+     */
+    @Transaction
+    default void recordDay(long epochDay, int completedCount) {
+        if (completedCount <= 0) {
+            deleteDay(epochDay);
+        } else {
+            CompletionDay prev = getDay(epochDay - 1);
+            upsert(new CompletionDay(epochDay, completedCount, prev != null ? prev.runLength + 1 : 1));
+        }
+        refreshPeriodsContaining(LocalDate.ofEpochDay(epochDay));
+    }
+
+    /** Replaces the whole index, e.g. after task deletes cascaded into past completions */
+    @Transaction
+    default void rebuild(List<DateCount> completedCounts) {
+        clear();
+        insertAll(CompletionDay.fromDateCounts(completedCounts));
+    }
+}
@@ -0,0 +1,43 @@
+package com.calmahahh.app.db;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calories/protein/carbs/fat totals for one date, per meal type and for the whole day.
+ * Built from the single grouped query {@link MealEntryDao#getMealMacrosForDate(String)}.
+ */
+public class DailyMacroBreakdown {
+
+    private final Map<String, MealMacros> meals = new HashMap<>();
+    private double totalCalories;
+    private double totalProtein;
+    private double totalCarbs;
+    private double totalFat;
+
+    public DailyMacroBreakdown(List<MealMacros> rows) {
+        for (MealMacros m : rows) {
+            meals.put(m.mealType, m);
+            totalCalories += m.totalCalories;
+            totalProtein += m.totalProtein;
+            totalCarbs += m.totalCarbs;
+            totalFat += m.totalFat;
+        }
+    }
+
+    /** Totals for a single meal, or null if nothing was logged for it */
+    public MealMacros getMeal(String mealType) {
+        return meals.get(mealType);
+    }
+
+    public double getMealCalories(String mealType) {
+        MealMacros m = meals.get(mealType);
+        return m != null ? m.totalCalories : 0;
+    }
+
+    public double getTotalCalories() { return totalCalories; }
+    public double getTotalProtein() { return totalProtein; }
+    public double getTotalCarbs() { return totalCarbs; }
+    public double getTotalFat() { return totalFat; }
+}
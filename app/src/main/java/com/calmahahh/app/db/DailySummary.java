@@ -4,6 +4,8 @@ import androidx.annotation.NonNull;
 import androidx.room.Entity;
 import androidx.room.PrimaryKey;
 
+import java.time.LocalDate;
+
 /**
  * Room entity representing a daily calorie summary.
  * One row per date.
@@ -13,7 +15,7 @@ public class DailySummary {
 
     @PrimaryKey
     @NonNull
-    public String date; // yyyy-MM-dd
+    public LocalDate date; // stored as epoch day
 
     public double totalCalories;
     public double totalProtein;
@@ -21,7 +23,7 @@ public class DailySummary {
     public double totalFat;
     public int targetCalories;
 
-    public DailySummary(@NonNull String date) {
+    public DailySummary(@NonNull LocalDate date) {
         this.date = date;
     }
 }
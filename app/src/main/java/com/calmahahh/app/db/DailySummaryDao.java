@@ -5,6 +5,7 @@ import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
 
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -17,20 +18,43 @@ public interface DailySummaryDao {
     void insertOrUpdate(DailySummary summary);
 
     @Query("SELECT * FROM daily_summary WHERE date = :date")
-    DailySummary getForDate(String date);
+    DailySummary getForDate(LocalDate date);
 
     @Query("SELECT * FROM daily_summary WHERE date BETWEEN :startDate AND :endDate ORDER BY date")
-    List<DailySummary> getInRange(String startDate, String endDate);
+    List<DailySummary> getInRange(LocalDate startDate, LocalDate endDate);
+
+    /** Calories per date from the maintained summaries (one row per day, no aggregation) */
+    @Query("SELECT date, totalCalories FROM daily_summary WHERE date BETWEEN :startDate AND :endDate")
+    List<DateCalories> getCaloriesInRange(LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Dates whose summary row disagrees with the raw meal entries: missing rows,
+     * stale totals, or rows left behind for days that no longer have entries.
+     */
+    @Query("SELECT m.date FROM (SELECT date, SUM(calories) AS c, SUM(protein) AS p, " +
+           "SUM(carbs) AS cb, SUM(fat) AS f FROM meal_entries GROUP BY date) AS m " +
+           "LEFT JOIN daily_summary s ON s.date = m.date " +
+           "WHERE s.date IS NULL OR ABS(s.totalCalories - m.c) > 0.01 OR ABS(s.totalProtein - m.p) > 0.01 " +
+           "OR ABS(s.totalCarbs - m.cb) > 0.01 OR ABS(s.totalFat - m.f) > 0.01 " +
+           "UNION SELECT date FROM daily_summary WHERE date NOT IN (SELECT date FROM meal_entries)")
+    List<LocalDate> getDriftedDates();
 
     @Query("SELECT * FROM daily_summary ORDER BY date DESC LIMIT :limit")
     List<DailySummary> getRecent(int limit);
 
     @Query("DELETE FROM daily_summary WHERE date = :date")
-    void delete(String date);
-
-    /** Count consecutive days where calories were within goal range */
-    @Query("SELECT COUNT(*) FROM daily_summary WHERE date <= :endDate " +
-           "AND totalCalories <= targetCalories * 1.1 AND totalCalories > 0 " +
-           "ORDER BY date DESC")
-    int getStreakDays(String endDate);
+    void delete(LocalDate date);
+
+    /**
+     * Consecutive run of logged days ending on endDate (gaps-and-islands):
+     * the recursive CTE walks back one day at a time by primary key and stops
+     * at the first day without calories.
+     */
+    @Query("WITH RECURSIVE run(date, totalCalories) AS (" +
+           "SELECT date, totalCalories FROM daily_summary WHERE date = :endDate AND totalCalories > 0 " +
+           "UNION ALL " +
+           "SELECT s.date, s.totalCalories FROM daily_summary s INNER JOIN run r " +
+           "ON s.date = r.date - 1 WHERE s.totalCalories > 0) " +
+           "SELECT COUNT(*) AS days, COALESCE(SUM(totalCalories), 0) AS totalCalories FROM run")
+    StreakRun getStreakEndingOn(LocalDate endDate);
 }
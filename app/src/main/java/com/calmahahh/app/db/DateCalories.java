@@ -1,9 +1,11 @@
 package com.calmahahh.app.db;
 
+import java.time.LocalDate;
+
 /**
  * Simple POJO for query results mapping date -> total calories.
  */
 public class DateCalories {
-    public String date;
+    public LocalDate date;
     public double totalCalories;
 }
@@ -0,0 +1,12 @@
+package com.calmahahh.app.db;
+
+import java.time.LocalDate;
+
+/**
+ * Simple POJO for query results mapping date -> completed/total task completions.
+ */
+public class DateCompletionStats {
+    public LocalDate date;
+    public int completed;
+    public int total;
+}
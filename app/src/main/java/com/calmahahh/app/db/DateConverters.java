@@ -0,0 +1,23 @@
+package com.calmahahh.app.db;
+
+import androidx.room.TypeConverter;
+
+import java.time.LocalDate;
+
+/**
+ * Room type converters. Dates are stored as INTEGER epoch days
+ * (days since 1970-01-01), so range scans and day arithmetic are
+ * plain integer comparisons.
+ */
+public class DateConverters {
+
+    @TypeConverter
+    public static Long fromLocalDate(LocalDate date) {
+        return date == null ? null : date.toEpochDay();
+    }
+
+    @TypeConverter
+    public static LocalDate toLocalDate(Long epochDay) {
+        return epochDay == null ? null : LocalDate.ofEpochDay(epochDay);
+    }
+}
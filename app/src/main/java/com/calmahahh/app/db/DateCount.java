@@ -0,0 +1,21 @@
+package com.calmahahh.app.db;
+
+import androidx.room.Ignore;
+
+import java.time.LocalDate;
+
+/**
+ * Simple POJO for query results mapping date -> row count.
+ */
+public class DateCount {
+    public LocalDate date;
+    public int count;
+
+    public DateCount() {}
+
+    @Ignore
+    public DateCount(LocalDate date, int count) {
+        this.date = date;
+        this.count = count;
+    }
+}
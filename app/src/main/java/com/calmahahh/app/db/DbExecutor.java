@@ -0,0 +1,117 @@
+package com.calmahahh.app.db;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide executor for database work that records how long each task
+ * waited in the queue and how long it ran.
+ *
+ * Tasks slower than {@link #SLOW_TASK_MS} are logged with the queue depth
+ * at the time they were submitted, so a stall can be told apart from a
+ * backlog. Totals are available through {@link #getStats()}.
+ */
+public class DbExecutor implements Executor {
+
+    private static final String TAG = "DbExecutor";
+    private static final long SLOW_TASK_MS = 50;
+
+    private final String name;
+    private final ThreadPoolExecutor pool;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger maxQueued = new AtomicInteger();
+    private final AtomicLong taskCount = new AtomicLong();
+    private final AtomicLong totalWaitMs = new AtomicLong();
+    private final AtomicLong totalRunMs = new AtomicLong();
+    private final AtomicLong maxRunMs = new AtomicLong();
+
+    public DbExecutor(String name, int threads) {
+        this.name = name;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> new Thread(r, name + "-" + threadIndex.incrementAndGet()));
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(@NonNull Runnable task) {
+        long submittedAt = SystemClock.elapsedRealtime();
+        int depth = queued.incrementAndGet();
+        maxQueued.accumulateAndGet(depth, Math::max);
+
+        pool.execute(() -> {
+            long startedAt = SystemClock.elapsedRealtime();
+            queued.decrementAndGet();
+            try {
+                task.run();
+            } finally {
+                long waitMs = startedAt - submittedAt;
+                long runMs = SystemClock.elapsedRealtime() - startedAt;
+                taskCount.incrementAndGet();
+                totalWaitMs.addAndGet(waitMs);
+                totalRunMs.addAndGet(runMs);
+                maxRunMs.accumulateAndGet(runMs, Math::max);
+                if (runMs + waitMs >= SLOW_TASK_MS) {
+                    Log.w(TAG, String.format("%s: slow task, waited %d ms, ran %d ms, queue depth %d",
+                            name, waitMs, runMs, depth));
+                }
+            }
+        });
+    }
+
+    /** Number of tasks submitted but not yet started */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    public Stats getStats() {
+        return new Stats(name, taskCount.get(), totalWaitMs.get(), totalRunMs.get(),
+                maxRunMs.get(), maxQueued.get());
+    }
+
+    /** Snapshot of an executor's counters since process start */
+    public static class Stats {
+        public final String name;
+        public final long tasks;
+        public final long totalWaitMs;
+        public final long totalRunMs;
+        public final long maxRunMs;
+        public final int maxQueueDepth;
+
+        Stats(String name, long tasks, long totalWaitMs, long totalRunMs,
+              long maxRunMs, int maxQueueDepth) {
+            this.name = name;
+            this.tasks = tasks;
+            this.totalWaitMs = totalWaitMs;
+            this.totalRunMs = totalRunMs;
+            this.maxRunMs = maxRunMs;
+            this.maxQueueDepth = maxQueueDepth;
+        }
+
+        public double averageWaitMs() {
+            return tasks > 0 ? (double) totalWaitMs / tasks : 0;
+        }
+
+        public double averageRunMs() {
+            return tasks > 0 ? (double) totalRunMs / tasks : 0;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format("%s: %d tasks, avg wait %.1f ms, avg run %.1f ms, max run %d ms, max queue %d",
+                    name, tasks, averageWaitMs(), averageRunMs(), maxRunMs, maxQueueDepth);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.calmahahh.app.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * One row per distinct food name (case-folded) pointing at its most recent
+ * uncompacted meal entry. Maintained by triggers on meal_entries, see
+ * {@link AppDatabase#createFoodNameTriggers}; never written from Java.
+ */
+@Entity(tableName = "food_names", indices = {@Index(value = "nameKey", unique = true)})
+public class FoodName {
+
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+
+    /** lower(foodName), the grouping key */
+    @NonNull
+    public String nameKey;
+
+    /** Name as written in the latest entry */
+    @NonNull
+    public String foodName;
+
+    public long latestId;
+
+    public FoodName(@NonNull String nameKey, @NonNull String foodName, long latestId) {
+        this.nameKey = nameKey;
+        this.foodName = foodName;
+        this.latestId = latestId;
+    }
+}
@@ -0,0 +1,15 @@
+package com.calmahahh.app.db;
+
+import androidx.room.Entity;
+import androidx.room.Fts4;
+
+/**
+ * Full-text index over food_names, so a prefix search touches each distinct
+ * food once rather than every entry that logged it. Its rowid is the FoodName id.
+ */
+@Fts4(contentEntity = FoodName.class)
+@Entity(tableName = "food_names_fts")
+public class FoodNameFts {
+
+    public String foodName;
+}
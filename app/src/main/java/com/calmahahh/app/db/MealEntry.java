@@ -1,21 +1,25 @@
 package com.calmahahh.app.db;
 
 import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
+import java.time.LocalDate;
+
 /**
  * Room entity representing a single food entry within a meal.
  * Relationship: One date -> multiple meals -> multiple food entries.
  */
-@Entity(tableName = "meal_entries")
+@Entity(tableName = "meal_entries", indices = {@Index({"date", "mealType"}), @Index({"date", "id"})})
 public class MealEntry {
 
     @PrimaryKey(autoGenerate = true)
     public long id;
 
     @NonNull
-    public String date; // yyyy-MM-dd
+    public LocalDate date; // stored as epoch day
 
     @NonNull
     public String mealType; // "Breakfast", "Lunch", "Dinner"
@@ -29,7 +33,11 @@ public class MealEntry {
     public double fat;
     public double grams;
 
-    public MealEntry(@NonNull String date, @NonNull String mealType,
+    /** True for a row folded from older entries by the history compaction job */
+    @ColumnInfo(defaultValue = "0")
+    public boolean compacted;
+
+    public MealEntry(@NonNull LocalDate date, @NonNull String mealType,
                      @NonNull String foodName, double calories,
                      double protein, double carbs, double fat, double grams) {
         this.date = date;
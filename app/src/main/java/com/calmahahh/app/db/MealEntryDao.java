@@ -1,18 +1,28 @@
 package com.calmahahh.app.db;
 
+import android.database.Cursor;
+
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 /**
  * Data Access Object for meal entries.
+ * Writes made through the *AndSummarize methods keep daily_summary and the
+ * stats rollups in step with meal_entries inside the same transaction.
  */
 @Dao
-public interface MealEntryDao {
+public interface MealEntryDao extends StatsRollupRefresh {
 
     @Insert
     long insert(MealEntry entry);
@@ -30,44 +40,200 @@ public interface MealEntryDao {
     void deleteById(long id);
 
     @Query("SELECT * FROM meal_entries WHERE date = :date ORDER BY mealType, id")
-    List<MealEntry> getEntriesForDate(String date);
+    List<MealEntry> getEntriesForDate(LocalDate date);
 
     @Query("SELECT * FROM meal_entries WHERE date = :date AND mealType = :mealType ORDER BY id")
-    List<MealEntry> getEntriesForMeal(String date, String mealType);
+    List<MealEntry> getEntriesForMeal(LocalDate date, String mealType);
+
+    @Query("SELECT EXISTS(SELECT 1 FROM meal_entries WHERE date = :date)")
+    boolean hasEntriesOn(LocalDate date);
 
     @Query("SELECT COALESCE(SUM(calories), 0) FROM meal_entries WHERE date = :date")
-    double getTotalCaloriesForDate(String date);
+    double getTotalCaloriesForDate(LocalDate date);
 
     @Query("SELECT COALESCE(SUM(calories), 0) FROM meal_entries WHERE date = :date AND mealType = :mealType")
-    double getMealCalories(String date, String mealType);
+    double getMealCalories(LocalDate date, String mealType);
 
     @Query("SELECT COALESCE(SUM(protein), 0) FROM meal_entries WHERE date = :date")
-    double getTotalProteinForDate(String date);
+    double getTotalProteinForDate(LocalDate date);
 
     @Query("SELECT COALESCE(SUM(carbs), 0) FROM meal_entries WHERE date = :date")
-    double getTotalCarbsForDate(String date);
+    double getTotalCarbsForDate(LocalDate date);
 
     @Query("SELECT COALESCE(SUM(fat), 0) FROM meal_entries WHERE date = :date")
-    double getTotalFatForDate(String date);
+    double getTotalFatForDate(LocalDate date);
+
+    /** Per-meal macro totals for a date in one grouped query (dashboard hot path) */
+    @Query("SELECT mealType, COALESCE(SUM(calories), 0) as totalCalories, " +
+           "COALESCE(SUM(protein), 0) as totalProtein, COALESCE(SUM(carbs), 0) as totalCarbs, " +
+           "COALESCE(SUM(fat), 0) as totalFat FROM meal_entries WHERE date = :date GROUP BY mealType")
+    List<MealMacros> getMealMacrosForDate(LocalDate date);
+
+    default DailyMacroBreakdown getDailyMacroBreakdown(LocalDate date) {
+        return new DailyMacroBreakdown(getMealMacrosForDate(date));
+    }
 
     @Query("DELETE FROM meal_entries WHERE date = :date AND mealType = :mealType")
-    void deleteAllForMeal(String date, String mealType);
+    void deleteAllForMeal(LocalDate date, String mealType);
 
     @Query("DELETE FROM meal_entries WHERE date = :date")
-    void deleteAllForDate(String date);
+    void deleteAllForDate(LocalDate date);
+
+    /** Recompute the daily_summary row for a date from its entries (keeps the stored target) */
+    @Query("INSERT OR REPLACE INTO daily_summary " +
+           "(date, totalCalories, totalProtein, totalCarbs, totalFat, targetCalories) " +
+           "SELECT :date, SUM(calories), SUM(protein), SUM(carbs), SUM(fat), " +
+           "COALESCE((SELECT targetCalories FROM daily_summary WHERE date = :date), :targetCalories) " +
+           "FROM meal_entries WHERE date = :date HAVING COUNT(*) > 0")
+    void refreshDailySummary(LocalDate date, int targetCalories);
+
+    @Query("DELETE FROM daily_summary WHERE date = :date " +
+           "AND NOT EXISTS (SELECT 1 FROM meal_entries WHERE date = :date)")
+    void deleteEmptyDailySummary(LocalDate date);
+
+    @Transaction
+    default void syncDailySummary(LocalDate date, int targetCalories) {
+        refreshDailySummary(date, targetCalories);
+        deleteEmptyDailySummary(date);
+        refreshPeriodsContaining(date);
+    }
+
+    @Transaction
+    default long insertAndSummarize(MealEntry entry, int targetCalories) {
+        long id = insert(entry);
+        syncDailySummary(entry.date, targetCalories);
+        return id;
+    }
+
+    @Transaction
+    default void insertAllAndSummarize(List<MealEntry> entries, int targetCalories) {
+        insertAll(entries);
+        Set<LocalDate> dates = new HashSet<>();
+        for (MealEntry e : entries) dates.add(e.date);
+        for (LocalDate date : dates) syncDailySummary(date, targetCalories);
+    }
+
+    @Transaction
+    default void updateAndSummarize(MealEntry entry, int targetCalories) {
+        update(entry);
+        syncDailySummary(entry.date, targetCalories);
+    }
+
+    @Transaction
+    default void deleteAndSummarize(MealEntry entry, int targetCalories) {
+        delete(entry);
+        syncDailySummary(entry.date, targetCalories);
+    }
 
     /** Get all dates that have entries, for calendar display */
     @Query("SELECT DISTINCT date FROM meal_entries ORDER BY date DESC")
-    List<String> getAllDatesWithEntries();
+    List<LocalDate> getAllDatesWithEntries();
+
+    // Meal history, newest first, paged by keyset on (date, id) so a page
+    // costs the same at any depth. The row-value comparison is what lets
+    // SQLite seek the (date, id) index; the equivalent OR form scans it.
+
+    @Query("SELECT COUNT(*) FROM meal_entries")
+    int getEntryCount();
+
+    @Query("SELECT * FROM meal_entries ORDER BY date DESC, id DESC LIMIT :limit")
+    List<MealEntry> getHistoryFirstPage(int limit);
+
+    /** The page after (older than) the given entry */
+    @Query("SELECT * FROM meal_entries WHERE (date, id) < (:date, :id) " +
+           "ORDER BY date DESC, id DESC LIMIT :limit")
+    List<MealEntry> getHistoryPageAfter(LocalDate date, long id, int limit);
+
+    /**
+     * The page starting at a position in the history, for jumps far past the
+     * loaded pages. Finding the key at :offset walks the covering (date, id)
+     * index once; the page itself is then a keyset seek.
+     */
+    @Query("SELECT * FROM meal_entries WHERE (date, id) <= " +
+           "(SELECT date, id FROM meal_entries ORDER BY date DESC, id DESC LIMIT 1 OFFSET :offset) " +
+           "ORDER BY date DESC, id DESC LIMIT :limit")
+    List<MealEntry> getHistoryPageAt(int offset, int limit);
+
+    /** The page before (newer than) the given entry, nearest first */
+    @Query("SELECT * FROM meal_entries WHERE (date, id) > (:date, :id) " +
+           "ORDER BY date ASC, id ASC LIMIT :limit")
+    List<MealEntry> getHistoryPageBefore(LocalDate date, long id, int limit);
+
+    /**
+     * Most recent entry of each distinct food whose name matches an FTS query,
+     * newest first. Matches against food_names, so the cost follows the number
+     * of distinct foods rather than entries. Use {@link #searchFoods} to search
+     * by typed text.
+     */
+    @Query("SELECT m.* FROM food_names_fts " +
+           "INNER JOIN food_names n ON n.id = food_names_fts.rowid " +
+           "INNER JOIN meal_entries m ON m.id = n.latestId " +
+           "WHERE food_names_fts MATCH :match ORDER BY m.date DESC, m.id DESC LIMIT :limit")
+    List<MealEntry> searchLatestByFoodName(String match, int limit);
+
+    /** Prefix search: every typed word must start a word of the food name */
+    default List<MealEntry> searchFoods(String text, int limit) {
+        StringBuilder match = new StringBuilder();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (token.isEmpty()) continue;
+            if (match.length() > 0) match.append(' ');
+            match.append(token).append('*');
+        }
+        if (match.length() == 0) return new ArrayList<>();
+        return searchLatestByFoodName(match.toString(), limit);
+    }
+
+    // History compaction: raw entries before a cutoff are folded into one row
+    // per date and meal. Totals are unchanged, so daily_summary and the
+    // rollups need no update. :maxId bounds the work to the rows archived.
+
+    /** Raw entries before the cutoff, oldest first, for archiving */
+    @Query("SELECT * FROM meal_entries WHERE date < :cutoff AND compacted = 0 ORDER BY date, id")
+    Cursor queryRawEntriesBefore(LocalDate cutoff);
+
+    @Query("SELECT COALESCE(MAX(id), 0) FROM meal_entries WHERE date < :cutoff AND compacted = 0")
+    long getMaxRawIdBefore(LocalDate cutoff);
+
+    @Query("INSERT INTO meal_entries (date, mealType, foodName, calories, protein, carbs, fat, grams, compacted) " +
+           "SELECT date, mealType, mealType || ' (' || COUNT(*) || ' items)', " +
+           "SUM(calories), SUM(protein), SUM(carbs), SUM(fat), SUM(grams), 1 FROM meal_entries " +
+           "WHERE date < :cutoff AND compacted = 0 AND id <= :maxId GROUP BY date, mealType")
+    void insertCompactedBefore(LocalDate cutoff, long maxId);
+
+    @Query("DELETE FROM meal_entries WHERE date < :cutoff AND compacted = 0 AND id <= :maxId")
+    int deleteRawBefore(LocalDate cutoff, long maxId);
+
+    @Query("DELETE FROM food_names")
+    void clearFoodNames();
+
+    /** Refills food_names in one pass; MAX() makes the bare foodName come from the latest row */
+    @Query("INSERT INTO food_names (nameKey, foodName, latestId) " +
+           "SELECT lower(foodName), foodName, MAX(id) FROM meal_entries " +
+           "WHERE compacted = 0 GROUP BY lower(foodName)")
+    void rebuildFoodNames();
+
+    /**
+     * Folds raw entries before the cutoff; returns how many were removed.
+     * food_names is emptied first so the per-row delete trigger has nothing to
+     * fix up (its fallback search is unindexed), then rebuilt in one pass.
+     */
+    @Transaction
+    default int compactBefore(LocalDate cutoff, long maxId) {
+        clearFoodNames();
+        insertCompactedBefore(cutoff, maxId);
+        int removed = deleteRawBefore(cutoff, maxId);
+        rebuildFoodNames();
+        return removed;
+    }
 
     /** Get total calories per date for a date range (for calendar/charts) */
     @Query("SELECT date, COALESCE(SUM(calories), 0) as totalCalories FROM meal_entries " +
            "WHERE date BETWEEN :startDate AND :endDate GROUP BY date")
-    List<DateCalories> getCaloriesInRange(String startDate, String endDate);
+    List<DateCalories> getCaloriesInRange(LocalDate startDate, LocalDate endDate);
 
     /** Get average daily calories for a date range */
     @Query("SELECT COALESCE(AVG(dailyTotal), 0) FROM " +
            "(SELECT SUM(calories) as dailyTotal FROM meal_entries " +
            "WHERE date BETWEEN :startDate AND :endDate GROUP BY date)")
-    double getAverageCaloriesInRange(String startDate, String endDate);
+    double getAverageCaloriesInRange(LocalDate startDate, LocalDate endDate);
 }
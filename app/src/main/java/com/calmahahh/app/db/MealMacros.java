@@ -0,0 +1,12 @@
+package com.calmahahh.app.db;
+
+/**
+ * Simple POJO for query results mapping a meal type -> summed macros for one date.
+ */
+public class MealMacros {
+    public String mealType;
+    public double totalCalories;
+    public double totalProtein;
+    public double totalCarbs;
+    public double totalFat;
+}
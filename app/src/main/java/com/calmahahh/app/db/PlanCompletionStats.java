@@ -0,0 +1,10 @@
+package com.calmahahh.app.db;
+
+/**
+ * Simple POJO for query results mapping plan id -> completed/total task completions.
+ */
+public class PlanCompletionStats {
+    public long planId;
+    public int completed;
+    public int total;
+}
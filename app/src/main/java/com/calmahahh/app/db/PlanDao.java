@@ -4,6 +4,7 @@ import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
 import java.util.List;
@@ -23,6 +24,12 @@ public interface PlanDao {
     @Query("SELECT * FROM plans ORDER BY createdAt DESC")
     List<Plan> getAllPlans();
 
+    /** All plans with their task counts in one joined query */
+    @Query("SELECT p.*, COUNT(t.id) as taskCount " +
+           "FROM plans p LEFT JOIN plan_tasks t ON t.planId = p.id " +
+           "GROUP BY p.id ORDER BY p.createdAt DESC")
+    List<PlanWithCounts> getAllPlansWithCounts();
+
     @Query("SELECT * FROM plans WHERE id = :planId")
     Plan getPlanById(long planId);
 
@@ -34,4 +41,25 @@ public interface PlanDao {
 
     @Query("DELETE FROM plans WHERE id = :planId")
     void deleteById(long planId);
+
+    /** Copies every task of one plan into another inside SQLite */
+    @Query("INSERT INTO plan_tasks (planId, daysMask, taskName, category, sets, reps, intensity, " +
+           "startTime, durationMinutes, notes, reminderEnabled, orderIndex) " +
+           "SELECT :newPlanId, daysMask, taskName, category, sets, reps, intensity, " +
+           "startTime, durationMinutes, notes, reminderEnabled, orderIndex " +
+           "FROM plan_tasks WHERE planId = :sourcePlanId")
+    void copyTasks(long sourcePlanId, long newPlanId);
+
+    /**
+     * Duplicates a plan row and all of its tasks in a single transaction.
+     * @return id of the new plan, or -1 if the source plan no longer exists
+     */
+    @Transaction
+    default long duplicatePlan(long planId, String newName) {
+        Plan source = getPlanById(planId);
+        if (source == null) return -1;
+        long newPlanId = insert(new Plan(newName, source.getType()));
+        copyTasks(planId, newPlanId);
+        return newPlanId;
+    }
 }
@@ -2,11 +2,15 @@ package com.calmahahh.app.db;
 
 import androidx.room.Entity;
 import androidx.room.ForeignKey;
+import androidx.room.Ignore;
 import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
+import java.time.DayOfWeek;
+
 /**
- * Represents a task within a plan on a specific day.
+ * Represents a task within a plan, repeating weekly on the days in its mask.
+ * Completion is recorded per date in task_completions.
  */
 @Entity(tableName = "plan_tasks",
         foreignKeys = @ForeignKey(
@@ -15,14 +19,17 @@ import androidx.room.PrimaryKey;
                 childColumns = "planId",
                 onDelete = ForeignKey.CASCADE
         ),
-        indices = {@Index("planId")})
+        indices = {@Index("planId"), @Index("reminderEnabled")})
 public class PlanTask {
 
     @PrimaryKey(autoGenerate = true)
     private long id;
 
+    /** Every day of the week; see {@link #dayBit} */
+    public static final int EVERY_DAY = 0x7F;
+
     private long planId;
-    private String dayOfWeek; // "Monday", "Tuesday", ... "Sunday"
+    private int daysMask;     // bit 0 = Monday ... bit 6 = Sunday
     private String taskName;
     private String category; // "Workout", "Chore", "Study", "Custom"
     private int sets;        // optional, default 0
@@ -31,14 +38,15 @@ public class PlanTask {
     private String startTime; // HH:mm format
     private int durationMinutes;
     private String notes;
-    private boolean completed;
     private boolean reminderEnabled;
-    private long completedAt; // timestamp, 0 if not completed
     private int orderIndex;   // for ordering tasks within a day
 
-    public PlanTask(long planId, String dayOfWeek, String taskName, String category) {
+    @Ignore
+    private boolean completed; // done on the date being shown, filled in from task_completions
+
+    public PlanTask(long planId, int daysMask, String taskName, String category) {
         this.planId = planId;
-        this.dayOfWeek = dayOfWeek;
+        this.daysMask = daysMask;
         this.taskName = taskName;
         this.category = category;
         this.sets = 0;
@@ -47,12 +55,19 @@ public class PlanTask {
         this.startTime = "08:00";
         this.durationMinutes = 30;
         this.notes = "";
-        this.completed = false;
         this.reminderEnabled = false;
-        this.completedAt = 0;
         this.orderIndex = 0;
     }
 
+    /** Mask bit for a weekday */
+    public static int dayBit(DayOfWeek day) {
+        return 1 << (day.getValue() - 1);
+    }
+
+    public boolean repeatsOn(DayOfWeek day) {
+        return (daysMask & dayBit(day)) != 0;
+    }
+
     // Getters and setters
     public long getId() { return id; }
     public void setId(long id) { this.id = id; }
@@ -60,8 +75,8 @@ public class PlanTask {
     public long getPlanId() { return planId; }
     public void setPlanId(long planId) { this.planId = planId; }
 
-    public String getDayOfWeek() { return dayOfWeek; }
-    public void setDayOfWeek(String dayOfWeek) { this.dayOfWeek = dayOfWeek; }
+    public int getDaysMask() { return daysMask; }
+    public void setDaysMask(int daysMask) { this.daysMask = daysMask; }
 
     public String getTaskName() { return taskName; }
     public void setTaskName(String taskName) { this.taskName = taskName; }
@@ -93,9 +108,6 @@ public class PlanTask {
     public boolean isReminderEnabled() { return reminderEnabled; }
     public void setReminderEnabled(boolean reminderEnabled) { this.reminderEnabled = reminderEnabled; }
 
-    public long getCompletedAt() { return completedAt; }
-    public void setCompletedAt(long completedAt) { this.completedAt = completedAt; }
-
     public int getOrderIndex() { return orderIndex; }
     public void setOrderIndex(int orderIndex) { this.orderIndex = orderIndex; }
 }
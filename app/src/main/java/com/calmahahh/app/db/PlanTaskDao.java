@@ -14,44 +14,40 @@ public interface PlanTaskDao {
     @Insert
     long insert(PlanTask task);
 
-    @Insert
-    void insertAll(List<PlanTask> tasks);
-
     @Update
     void update(PlanTask task);
 
     @Delete
     void delete(PlanTask task);
 
-    @Query("SELECT * FROM plan_tasks WHERE planId = :planId ORDER BY dayOfWeek, orderIndex, startTime")
+    @Query("SELECT * FROM plan_tasks WHERE planId = :planId ORDER BY orderIndex, startTime")
     List<PlanTask> getTasksForPlan(long planId);
 
-    @Query("SELECT * FROM plan_tasks WHERE planId = :planId AND dayOfWeek = :day ORDER BY orderIndex, startTime")
-    List<PlanTask> getTasksForPlanDay(long planId, String day);
+    // Day filters take a PlanTask.dayBit and match tasks whose mask includes it
+
+    @Query("SELECT * FROM plan_tasks WHERE planId = :planId AND (daysMask & :dayBit) != 0 " +
+           "ORDER BY orderIndex, startTime")
+    List<PlanTask> getTasksForPlanDay(long planId, int dayBit);
 
-    @Query("SELECT * FROM plan_tasks WHERE dayOfWeek = :day ORDER BY startTime")
-    List<PlanTask> getTasksForDay(String day);
+    @Query("SELECT * FROM plan_tasks WHERE (daysMask & :dayBit) != 0 ORDER BY startTime")
+    List<PlanTask> getTasksForDay(int dayBit);
+
+    /** Tasks for a day across all plans, each with its plan name, in one joined query */
+    @Query("SELECT t.*, p.name as planName FROM plan_tasks t INNER JOIN plans p ON p.id = t.planId " +
+           "WHERE (t.daysMask & :dayBit) != 0 ORDER BY t.startTime")
+    List<TaskWithPlanName> getTasksWithPlanNameForDay(int dayBit);
 
     @Query("SELECT * FROM plan_tasks WHERE id = :taskId")
     PlanTask getTaskById(long taskId);
 
-    @Query("UPDATE plan_tasks SET completed = :completed, completedAt = :completedAt WHERE id = :taskId")
-    void updateCompletion(long taskId, boolean completed, long completedAt);
-
     @Query("UPDATE plan_tasks SET reminderEnabled = :enabled WHERE id = :taskId")
     void updateReminderEnabled(long taskId, boolean enabled);
 
     @Query("SELECT COUNT(*) FROM plan_tasks WHERE planId = :planId")
     int getTaskCountForPlan(long planId);
 
-    @Query("SELECT COUNT(*) FROM plan_tasks WHERE planId = :planId AND completed = 1")
-    int getCompletedTaskCountForPlan(long planId);
-
-    @Query("SELECT COUNT(*) FROM plan_tasks WHERE dayOfWeek = :day")
-    int getTaskCountForDay(String day);
-
-    @Query("SELECT COUNT(*) FROM plan_tasks WHERE dayOfWeek = :day AND completed = 1")
-    int getCompletedTaskCountForDay(String day);
+    @Query("SELECT COUNT(*) FROM plan_tasks WHERE (daysMask & :dayBit) != 0")
+    int getTaskCountForDay(int dayBit);
 
     @Query("DELETE FROM plan_tasks WHERE id = :taskId")
     void deleteById(long taskId);
@@ -62,13 +58,6 @@ public interface PlanTaskDao {
     @Query("SELECT * FROM plan_tasks WHERE reminderEnabled = 1")
     List<PlanTask> getTasksWithReminders();
 
-    @Query("SELECT * FROM plan_tasks WHERE category = 'Workout' AND planId = :planId ORDER BY dayOfWeek, orderIndex")
+    @Query("SELECT * FROM plan_tasks WHERE category = 'Workout' AND planId = :planId ORDER BY orderIndex")
     List<PlanTask> getWorkoutTasksForPlan(long planId);
-
-    // Reset all completions for a new week
-    @Query("UPDATE plan_tasks SET completed = 0, completedAt = 0")
-    void resetAllCompletions();
-
-    @Query("UPDATE plan_tasks SET completed = 0, completedAt = 0 WHERE planId = :planId")
-    void resetCompletionsForPlan(long planId);
 }
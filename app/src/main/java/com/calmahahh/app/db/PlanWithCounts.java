@@ -0,0 +1,13 @@
+package com.calmahahh.app.db;
+
+import androidx.room.Embedded;
+
+/**
+ * A plan together with its task count, loaded in one joined query.
+ */
+public class PlanWithCounts {
+    @Embedded
+    public Plan plan;
+
+    public int taskCount;
+}
@@ -0,0 +1,44 @@
+package com.calmahahh.app.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.util.List;
+
+@Dao
+public interface ScanCacheDao {
+
+    @Query("SELECT * FROM scan_cache WHERE imageHash = :imageHash AND context = :context")
+    ScanCacheEntry get(long imageHash, String context);
+
+    /** Most recently used entry with this hash, whatever its context */
+    @Query("SELECT * FROM scan_cache WHERE imageHash = :imageHash ORDER BY lastUsedAt DESC LIMIT 1")
+    ScanCacheEntry getLatestForHash(long imageHash);
+
+    @Query("SELECT DISTINCT imageHash FROM scan_cache")
+    List<Long> getAllHashes();
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(ScanCacheEntry entry);
+
+    @Query("UPDATE scan_cache SET lastUsedAt = :now WHERE imageHash = :imageHash AND context = :context")
+    void touch(long imageHash, String context, long now);
+
+    /** Drops all but the {@code keep} most recently used entries */
+    @Query("DELETE FROM scan_cache WHERE lastUsedAt < " +
+           "(SELECT lastUsedAt FROM scan_cache ORDER BY lastUsedAt DESC LIMIT 1 OFFSET :keep)")
+    void trimTo(int keep);
+
+    @Query("SELECT COUNT(*) FROM scan_cache")
+    int getCount();
+
+    /** Stores an entry and evicts the least recently used beyond {@code keep} */
+    @Transaction
+    default void put(ScanCacheEntry entry, int keep) {
+        insert(entry);
+        trimTo(keep);
+    }
+}
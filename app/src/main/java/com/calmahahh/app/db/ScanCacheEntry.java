@@ -0,0 +1,35 @@
+package com.calmahahh.app.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+
+/**
+ * A parsed food scan result, keyed by the photo's perceptual hash and the
+ * normalized context the user typed with it. foodsJson is the Gson form of
+ * the detected FoodItem list, before any portion edits.
+ */
+@Entity(tableName = "scan_cache", primaryKeys = {"imageHash", "context"},
+        indices = {@Index("lastUsedAt")})
+public class ScanCacheEntry {
+
+    public long imageHash; // 64-bit dHash, see ImageUtils#dHash
+
+    @NonNull
+    public String context;
+
+    @NonNull
+    public String foodsJson;
+
+    public long createdAt;
+    public long lastUsedAt;
+
+    public ScanCacheEntry(long imageHash, @NonNull String context, @NonNull String foodsJson,
+                          long createdAt, long lastUsedAt) {
+        this.imageHash = imageHash;
+        this.context = context;
+        this.foodsJson = foodsJson;
+        this.createdAt = createdAt;
+        this.lastUsedAt = lastUsedAt;
+    }
+}
@@ -0,0 +1,65 @@
+package com.calmahahh.app.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+/**
+ * Pre-aggregated calories, macros and task completions for one week, month
+ * or year. The day tier is daily_summary plus completion_days itself, so only
+ * the coarser tiers are stored. Rows are refreshed per period on every write
+ * (see {@link StatsRollupRefresh#refreshPeriodsContaining}), so long-range charts
+ * read a few dozen rows instead of every logged day.
+ */
+@Entity(tableName = "stats_rollups", primaryKeys = {"tier", "periodStart"})
+public class StatsRollup {
+
+    public static final int TIER_DAY = 0;   // read-only view over the day tables
+    public static final int TIER_WEEK = 1;  // weeks start on Monday
+    public static final int TIER_MONTH = 2;
+    public static final int TIER_YEAR = 3;
+
+    public int tier;
+
+    @NonNull
+    public LocalDate periodStart; // stored as epoch day
+
+    public int loggedDays;        // days with calories logged
+    public double totalCalories;
+    public double totalProtein;
+    public double totalCarbs;
+    public double totalFat;
+    public int completedTasks;
+
+    public StatsRollup(int tier, @NonNull LocalDate periodStart) {
+        this.tier = tier;
+        this.periodStart = periodStart;
+    }
+
+    /** First day of the {@code tier} period containing {@code date} */
+    public static LocalDate periodStart(int tier, LocalDate date) {
+        switch (tier) {
+            case TIER_WEEK:  return date.with(DayOfWeek.MONDAY);
+            case TIER_MONTH: return date.withDayOfMonth(1);
+            case TIER_YEAR:  return date.withDayOfYear(1);
+            default:         return date;
+        }
+    }
+
+    /** First day of the {@code tier} period after the one starting at {@code start} */
+    public static LocalDate nextPeriod(int tier, LocalDate start) {
+        switch (tier) {
+            case TIER_WEEK:  return start.plusWeeks(1);
+            case TIER_MONTH: return start.plusMonths(1);
+            case TIER_YEAR:  return start.plusYears(1);
+            default:         return start.plusDays(1);
+        }
+    }
+
+    /** Average calories over the days that had any logged */
+    public double getAverageCalories() {
+        return loggedDays > 0 ? totalCalories / loggedDays : 0;
+    }
+}
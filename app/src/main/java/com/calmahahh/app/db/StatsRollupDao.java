@@ -0,0 +1,63 @@
+package com.calmahahh.app.db;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Data Access Object for the week/month/year rollup tiers. The per-period
+ * refresh lives in {@link StatsRollupRefresh}, shared with the DAOs whose
+ * writes call it.
+ */
+@Dao
+public interface StatsRollupDao extends StatsRollupRefresh {
+
+    @Query("DELETE FROM stats_rollups")
+    void clear();
+
+    @Query("SELECT " + StatsRollup.TIER_DAY + " AS tier, day AS periodStart, SUM(logged) AS loggedDays, " +
+           "SUM(calories) AS totalCalories, SUM(protein) AS totalProtein, SUM(carbs) AS totalCarbs, " +
+           "SUM(fat) AS totalFat, SUM(tasks) AS completedTasks FROM " + DAY_SOURCE +
+           " WHERE day BETWEEN :from AND :to GROUP BY day ORDER BY day")
+    List<StatsRollup> getDays(LocalDate from, LocalDate to);
+
+    @Query("SELECT * FROM stats_rollups WHERE tier = :tier AND periodStart BETWEEN :from AND :to " +
+           "ORDER BY periodStart")
+    List<StatsRollup> getTier(int tier, LocalDate from, LocalDate to);
+
+    /** Start of the first year with any data, or null when nothing is logged */
+    @Query("SELECT MIN(periodStart) FROM stats_rollups WHERE tier = " + StatsRollup.TIER_YEAR)
+    LocalDate getFirstPeriodStart();
+
+    /** Recomputes every tier, e.g. after past completions were deleted */
+    @Transaction
+    default void rebuildAll() {
+        clear();
+        rollUpWeeks(LocalDate.MIN, LocalDate.MAX);
+        rollUpMonths(LocalDate.MIN, LocalDate.MAX);
+        rollUpYearsFromMonths(LocalDate.MIN, LocalDate.MAX);
+    }
+
+    /**
+     * The finest tier that covers {@code from..to} in at most {@code maxPoints}
+     * buckets: days, then weeks, months, years.
+     */
+    static int tierFor(LocalDate from, LocalDate to, int maxPoints) {
+        if (ChronoUnit.DAYS.between(from, to) + 1 <= maxPoints) return StatsRollup.TIER_DAY;
+        LocalDate week = StatsRollup.periodStart(StatsRollup.TIER_WEEK, from);
+        if (ChronoUnit.WEEKS.between(week, to) + 1 <= maxPoints) return StatsRollup.TIER_WEEK;
+        LocalDate month = StatsRollup.periodStart(StatsRollup.TIER_MONTH, from);
+        if (ChronoUnit.MONTHS.between(month, to) + 1 <= maxPoints) return StatsRollup.TIER_MONTH;
+        return StatsRollup.TIER_YEAR;
+    }
+
+    /** Buckets of {@code tier} covering {@code from..to}; only buckets with data are returned */
+    default List<StatsRollup> getSeries(int tier, LocalDate from, LocalDate to) {
+        if (tier == StatsRollup.TIER_DAY) return getDays(from, to);
+        return getTier(tier, StatsRollup.periodStart(tier, from), to);
+    }
+}
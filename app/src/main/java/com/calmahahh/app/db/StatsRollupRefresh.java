@@ -0,0 +1,71 @@
+package com.calmahahh.app.db;
+
+import androidx.room.Query;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+/**
+ * Rollup writes shared by the DAOs that change a day's totals, so each can
+ * refresh the stats_rollups periods inside its own write transaction.
+ * Months are built from day rows, years from the twelve month rows.
+ */
+public interface StatsRollupRefresh {
+
+    /** One row per logged day and per day with completed tasks */
+    String DAY_SOURCE = "(SELECT date AS day, 1 AS logged, totalCalories AS calories, " +
+            "totalProtein AS protein, totalCarbs AS carbs, totalFat AS fat, 0 AS tasks " +
+            "FROM daily_summary WHERE totalCalories > 0 " +
+            "UNION ALL SELECT epochDay, 0, 0, 0, 0, 0, completedCount FROM completion_days)";
+
+    String INSERT_ROLLUP = "INSERT OR REPLACE INTO stats_rollups (tier, periodStart, loggedDays, " +
+            "totalCalories, totalProtein, totalCarbs, totalFat, completedTasks) ";
+
+    String SUMS = "SUM(logged), SUM(calories), SUM(protein), SUM(carbs), SUM(fat), SUM(tasks) " +
+            "FROM " + DAY_SOURCE;
+
+    // Period keys as epoch days; epoch day 0 was a Thursday, and 2440587.5 is its Julian day
+    String WEEK_ROLLUP = INSERT_ROLLUP + "SELECT " + StatsRollup.TIER_WEEK +
+            ", day - ((day + 3) % 7) AS period, " + SUMS;
+    String MONTH_ROLLUP = INSERT_ROLLUP + "SELECT " + StatsRollup.TIER_MONTH +
+            ", CAST(julianday(day + 2440587.5, 'start of month') - 2440587.5 AS INTEGER) AS period, " + SUMS;
+
+    String IN_RANGE = " WHERE day BETWEEN :from AND :to GROUP BY period";
+
+    @Query(WEEK_ROLLUP + IN_RANGE)
+    void rollUpWeeks(LocalDate from, LocalDate to);
+
+    @Query(MONTH_ROLLUP + IN_RANGE)
+    void rollUpMonths(LocalDate from, LocalDate to);
+
+    /** Sums the month rows starting in {@code from..to}; run after the months are current */
+    @Query(INSERT_ROLLUP + "SELECT " + StatsRollup.TIER_YEAR +
+           ", CAST(julianday(periodStart + 2440587.5, 'start of year') - 2440587.5 AS INTEGER) AS period, " +
+           "SUM(loggedDays), SUM(totalCalories), SUM(totalProtein), SUM(totalCarbs), SUM(totalFat), " +
+           "SUM(completedTasks) FROM stats_rollups WHERE tier = " + StatsRollup.TIER_MONTH +
+           " AND periodStart BETWEEN :from AND :to GROUP BY period")
+    void rollUpYearsFromMonths(LocalDate from, LocalDate to);
+
+    @Query("DELETE FROM stats_rollups WHERE tier = :tier AND periodStart BETWEEN :from AND :to")
+    void deleteTier(int tier, LocalDate from, LocalDate to);
+
+    /**
+     * Recomputes the week, month and year containing {@code date}. Called
+     * from the DAO transactions that change that day's summary or completed
+     * count; reads at most a week of day rows, a month of day rows and
+     * twelve month rows.
+     */
+    default void refreshPeriodsContaining(LocalDate date) {
+        LocalDate week = date.with(DayOfWeek.MONDAY);
+        deleteTier(StatsRollup.TIER_WEEK, week, week);
+        rollUpWeeks(week, week.plusDays(6));
+
+        LocalDate month = date.withDayOfMonth(1);
+        deleteTier(StatsRollup.TIER_MONTH, month, month);
+        rollUpMonths(month, month.plusMonths(1).minusDays(1));
+
+        LocalDate year = date.withDayOfYear(1);
+        deleteTier(StatsRollup.TIER_YEAR, year, year);
+        rollUpYearsFromMonths(year, year.plusYears(1).minusDays(1));
+    }
+}
@@ -0,0 +1,9 @@
+package com.calmahahh.app.db;
+
+/**
+ * Simple POJO for a consecutive run of logged days: its length and summed calories.
+ */
+public class StreakRun {
+    public int days;
+    public double totalCalories;
+}
@@ -0,0 +1,94 @@
+package com.calmahahh.app.db;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.room.InvalidationTracker;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reloads a screen when a table it shows changes.
+ *
+ * Room's InvalidationTracker reports every committed write to the watched
+ * tables. While the owner is started the reload runs straight away; otherwise
+ * the change is remembered and the reload runs once on the next start.
+ * Coming back to a screen whose data did not change runs no queries.
+ */
+public class TableWatcher implements DefaultLifecycleObserver {
+
+    private final InvalidationTracker tracker;
+    private final InvalidationTracker.Observer observer;
+    private final Runnable reload;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Starts dirty so the first onStart does the initial load
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private boolean started;
+
+    /**
+     * Runs {@code reload} on the main thread on first start and after any
+     * write to {@code tables}, for as long as {@code owner} is alive.
+     */
+    public static TableWatcher watch(LifecycleOwner owner, AppDatabase db, Runnable reload, String... tables) {
+        TableWatcher watcher = new TableWatcher(db, reload, tables);
+        owner.getLifecycle().addObserver(watcher);
+        return watcher;
+    }
+
+    /**
+     * Marks the data stale for an input that is not a table, such as a
+     * preference or the current date. Call on the main thread; the reload
+     * runs now if the owner is started, else on its next start.
+     */
+    public void invalidate() {
+        dirty.set(true);
+        reloadIfDirty();
+    }
+
+    private TableWatcher(AppDatabase db, Runnable reload, String... tables) {
+        this.tracker = db.getInvalidationTracker();
+        this.reload = reload;
+        this.observer = new InvalidationTracker.Observer(tables) {
+            @Override
+            public void onInvalidated(@NonNull Set<String> changedTables) {
+                dirty.set(true);
+                mainHandler.post(TableWatcher.this::reloadIfDirty);
+            }
+        };
+    }
+
+    @Override
+    public void onCreate(@NonNull LifecycleOwner owner) {
+        // Registering syncs Room's triggers, which touches the database
+        AppDatabase.writeExecutor().execute(() -> tracker.addObserver(observer));
+    }
+
+    @Override
+    public void onStart(@NonNull LifecycleOwner owner) {
+        started = true;
+        reloadIfDirty();
+    }
+
+    @Override
+    public void onStop(@NonNull LifecycleOwner owner) {
+        started = false;
+    }
+
+    @Override
+    public void onDestroy(@NonNull LifecycleOwner owner) {
+        mainHandler.removeCallbacksAndMessages(null);
+        owner.getLifecycle().removeObserver(this);
+        AppDatabase.writeExecutor().execute(() -> tracker.removeObserver(observer));
+    }
+
+    private void reloadIfDirty() {
+        if (started && dirty.getAndSet(false)) {
+            reload.run();
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package com.calmahahh.app.db;
 
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.ForeignKey;
 import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
+import java.time.LocalDate;
+
 /**
  * Records daily completion of a task for tracking history and statistics.
- * Each record represents one day's completion status of a specific task.
+ * Each record represents one day's completion status of a specific task;
+ * there is at most one per task and date. Task and plan names are joined
+ * in from plan_tasks and plans rather than copied here.
  */
 @Entity(tableName = "task_completions",
         foreignKeys = @ForeignKey(
@@ -16,22 +21,23 @@ import androidx.room.PrimaryKey;
                 childColumns = "taskId",
                 onDelete = ForeignKey.CASCADE
         ),
-        indices = {@Index("taskId"), @Index("date")})
+        indices = {@Index(value = {"taskId", "date"}, unique = true), @Index({"planId", "date"}),
+                @Index("date")})
 public class TaskCompletion {
 
     @PrimaryKey(autoGenerate = true)
     private long id;
 
     private long taskId;
-    private String date; // yyyy-MM-dd
+    @ColumnInfo(defaultValue = "0")
+    private long planId; // the task's plan, for per-plan stats without a join
+    private LocalDate date; // stored as epoch day
     private boolean completed;
     private long completedAt; // timestamp
-    private String planName;
-    private String taskName;
-    private String category;
 
-    public TaskCompletion(long taskId, String date, boolean completed) {
+    public TaskCompletion(long taskId, long planId, LocalDate date, boolean completed) {
         this.taskId = taskId;
+        this.planId = planId;
         this.date = date;
         this.completed = completed;
         this.completedAt = completed ? System.currentTimeMillis() : 0;
@@ -44,8 +50,11 @@ public class TaskCompletion {
     public long getTaskId() { return taskId; }
     public void setTaskId(long taskId) { this.taskId = taskId; }
 
-    public String getDate() { return date; }
-    public void setDate(String date) { this.date = date; }
+    public long getPlanId() { return planId; }
+    public void setPlanId(long planId) { this.planId = planId; }
+
+    public LocalDate getDate() { return date; }
+    public void setDate(LocalDate date) { this.date = date; }
 
     public boolean isCompleted() { return completed; }
     public void setCompleted(boolean completed) { this.completed = completed; }
@@ -53,12 +62,4 @@ public class TaskCompletion {
     public long getCompletedAt() { return completedAt; }
     public void setCompletedAt(long completedAt) { this.completedAt = completedAt; }
 
-    public String getPlanName() { return planName; }
-    public void setPlanName(String planName) { this.planName = planName; }
-
-    public String getTaskName() { return taskName; }
-    public void setTaskName(String taskName) { this.taskName = taskName; }
-
-    public String getCategory() { return category; }
-    public void setCategory(String category) { this.category = category; }
 }
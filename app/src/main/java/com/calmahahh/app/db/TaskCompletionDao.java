@@ -5,48 +5,73 @@ import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @Dao
 public interface TaskCompletionDao {
 
+    /** Upsert: replaces any record for the same task and date */
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insert(TaskCompletion completion);
 
     @Query("SELECT * FROM task_completions WHERE date = :date")
-    List<TaskCompletion> getCompletionsForDate(String date);
+    List<TaskCompletion> getCompletionsForDate(LocalDate date);
+
+    /** Ids of the tasks done on a date, to show their check state */
+    @Query("SELECT taskId FROM task_completions WHERE date = :date AND completed = 1")
+    List<Long> getCompletedTaskIds(LocalDate date);
 
     @Query("SELECT * FROM task_completions WHERE taskId = :taskId ORDER BY date DESC")
     List<TaskCompletion> getCompletionsForTask(long taskId);
 
     @Query("SELECT * FROM task_completions WHERE date BETWEEN :startDate AND :endDate ORDER BY date")
-    List<TaskCompletion> getCompletionsInRange(String startDate, String endDate);
+    List<TaskCompletion> getCompletionsInRange(LocalDate startDate, LocalDate endDate);
 
     @Query("SELECT COUNT(*) FROM task_completions WHERE completed = 1 AND date BETWEEN :startDate AND :endDate")
-    int getCompletedCountInRange(String startDate, String endDate);
+    int getCompletedCountInRange(LocalDate startDate, LocalDate endDate);
 
     @Query("SELECT COUNT(*) FROM task_completions WHERE date BETWEEN :startDate AND :endDate")
-    int getTotalCountInRange(String startDate, String endDate);
+    int getTotalCountInRange(LocalDate startDate, LocalDate endDate);
 
     @Query("SELECT COUNT(*) FROM task_completions WHERE completed = 1")
     int getTotalCompleted();
 
     @Query("SELECT COUNT(*) FROM task_completions WHERE completed = 0 AND date < :today")
-    int getMissedCount(String today);
+    int getMissedCount(LocalDate today);
 
     @Query("SELECT * FROM task_completions WHERE completed = 1 ORDER BY date DESC")
     List<TaskCompletion> getAllCompleted();
 
     @Query("SELECT DISTINCT date FROM task_completions WHERE completed = 1 ORDER BY date DESC")
-    List<String> getCompletedDates();
+    List<LocalDate> getCompletedDates();
+
+    /** Completed count per date, ascending, for rebuilding the completion-day index */
+    @Query("SELECT date, COUNT(*) as count FROM task_completions WHERE completed = 1 GROUP BY date ORDER BY date")
+    List<DateCount> getCompletedCountsByDate();
+
+    /** Completed/total per day for a date range in one grouped query */
+    @Query("SELECT date, COALESCE(SUM(completed), 0) as completed, COUNT(*) as total " +
+           "FROM task_completions WHERE date BETWEEN :start AND :end GROUP BY date")
+    List<DateCompletionStats> getDailyStatsInRange(LocalDate start, LocalDate end);
+
+    /** Completed/total per plan (by id, so renames don't matter) for a date range */
+    @Query("SELECT planId, COALESCE(SUM(completed), 0) as completed, COUNT(*) as total " +
+           "FROM task_completions WHERE date BETWEEN :start AND :end GROUP BY planId")
+    List<PlanCompletionStats> getPlanStatsInRange(LocalDate start, LocalDate end);
 
     // Per-plan stats
-    @Query("SELECT COUNT(*) FROM task_completions WHERE planName = :planName AND completed = 1 AND date BETWEEN :start AND :end")
-    int getCompletedForPlanInRange(String planName, String start, String end);
+    @Query("SELECT COUNT(*) FROM task_completions WHERE planId = :planId AND completed = 1 AND date BETWEEN :start AND :end")
+    int getCompletedForPlanInRange(long planId, LocalDate start, LocalDate end);
+
+    @Query("SELECT COUNT(*) FROM task_completions WHERE planId = :planId AND date BETWEEN :start AND :end")
+    int getTotalForPlanInRange(long planId, LocalDate start, LocalDate end);
 
-    @Query("SELECT COUNT(*) FROM task_completions WHERE planName = :planName AND date BETWEEN :start AND :end")
-    int getTotalForPlanInRange(String planName, String start, String end);
+    /** Sets planId from the task for rows restored from a backup that predates it */
+    @Query("UPDATE task_completions SET planId = " +
+           "(SELECT t.planId FROM plan_tasks t WHERE t.id = task_completions.taskId) WHERE planId = 0")
+    void fillMissingPlanIds();
 
     @Query("DELETE FROM task_completions WHERE date = :date AND taskId = :taskId")
-    void deleteCompletion(String date, long taskId);
+    void deleteCompletion(LocalDate date, long taskId);
 }
@@ -0,0 +1,13 @@
+package com.calmahahh.app.db;
+
+import androidx.room.Embedded;
+
+/**
+ * A task together with the name of the plan it belongs to, loaded in one joined query.
+ */
+public class TaskWithPlanName {
+    @Embedded
+    public PlanTask task;
+
+    public String planName;
+}
@@ -5,6 +5,8 @@ import androidx.room.ForeignKey;
 import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
+import java.time.LocalDate;
+
 /**
  * Records workout weight/reps history for progressive overload tracking.
  */
@@ -15,21 +17,21 @@ import androidx.room.PrimaryKey;
                 childColumns = "taskId",
                 onDelete = ForeignKey.CASCADE
         ),
-        indices = {@Index("taskId"), @Index("date")})
+        indices = {@Index("taskId"), @Index("date"), @Index({"exerciseName", "date"})})
 public class WorkoutHistory {
 
     @PrimaryKey(autoGenerate = true)
     private long id;
 
     private long taskId;
-    private String date; // yyyy-MM-dd
+    private LocalDate date; // stored as epoch day
     private String exerciseName;
     private double weight; // in kg or lbs
     private int sets;
     private int reps;
     private String notes;
 
-    public WorkoutHistory(long taskId, String date, String exerciseName, double weight, int sets, int reps) {
+    public WorkoutHistory(long taskId, LocalDate date, String exerciseName, double weight, int sets, int reps) {
         this.taskId = taskId;
         this.date = date;
         this.exerciseName = exerciseName;
@@ -46,8 +48,8 @@ public class WorkoutHistory {
     public long getTaskId() { return taskId; }
     public void setTaskId(long taskId) { this.taskId = taskId; }
 
-    public String getDate() { return date; }
-    public void setDate(String date) { this.date = date; }
+    public LocalDate getDate() { return date; }
+    public void setDate(LocalDate date) { this.date = date; }
 
     public String getExerciseName() { return exerciseName; }
     public void setExerciseName(String exerciseName) { this.exerciseName = exerciseName; }
@@ -4,6 +4,7 @@ import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.Query;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @Dao
@@ -25,13 +26,13 @@ public interface WorkoutHistoryDao {
     WorkoutHistory getLatestForTask(long taskId);
 
     @Query("SELECT * FROM workout_history WHERE date BETWEEN :startDate AND :endDate ORDER BY date")
-    List<WorkoutHistory> getHistoryInRange(String startDate, String endDate);
+    List<WorkoutHistory> getHistoryInRange(LocalDate startDate, LocalDate endDate);
 
     @Query("SELECT DISTINCT exerciseName FROM workout_history ORDER BY exerciseName")
     List<String> getAllExerciseNames();
 
     @Query("SELECT * FROM workout_history WHERE exerciseName = :exerciseName AND date BETWEEN :start AND :end ORDER BY date")
-    List<WorkoutHistory> getExerciseHistoryInRange(String exerciseName, String start, String end);
+    List<WorkoutHistory> getExerciseHistoryInRange(String exerciseName, LocalDate start, LocalDate end);
 
     @Query("DELETE FROM workout_history WHERE id = :id")
     void deleteById(long id);
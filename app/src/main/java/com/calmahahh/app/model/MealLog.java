@@ -1,32 +1,19 @@
 package com.calmahahh.app.model;
 
-import android.content.Context;
-import android.content.SharedPreferences;
-
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 
-import java.lang.reflect.Type;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 
 /**
- * Tracks daily meal logs: Breakfast, Lunch, Dinner.
- * Each meal stores a list of FoodItems and their total calories.
- * Persisted daily via SharedPreferences (keyed by date).
+ * The original meal log format: one Gson-serialized {@link DailyLog} per day,
+ * stored in SharedPreferences keyed by date. Meals are now kept in Room, so
+ * this is only read by {@link com.calmahahh.app.worker.MealLogMigrationWorker}
+ * to move old logs across.
  */
 public class MealLog {
 
-    public static final int MEAL_BREAKFAST = 0;
-    public static final int MEAL_LUNCH     = 1;
-    public static final int MEAL_DINNER    = 2;
-
-    public static final String[] MEAL_NAMES = {"Breakfast", "Lunch", "Dinner"};
-
-    private static final String PREFS_NAME = "calmahahh_meal_log";
+    public static final String PREFS_NAME = "calmahahh_meal_log";
     private static final Gson gson = new Gson();
 
     /** A single logged meal entry */
@@ -109,75 +96,12 @@ public class MealLog {
 
     // ---- Static helpers ----
 
-    private static String todayKey() {
-        return new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date());
-    }
-
-    /** Load today's log (or empty if none exists) */
-    public static DailyLog loadToday(Context context) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        String key = todayKey();
-        String json = prefs.getString(key, null);
-        if (json != null) {
-            try {
-                return gson.fromJson(json, DailyLog.class);
-            } catch (Exception ignored) {}
-        }
-        return new DailyLog(key);
-    }
-
-    /** Save today's log */
-    public static void saveToday(Context context, DailyLog log) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        prefs.edit().putString(todayKey(), gson.toJson(log)).apply();
-    }
-
-    /**
-     * Add a meal to today's log from scanned food items.
-     * @param context  Android context
-     * @param mealType MEAL_BREAKFAST, MEAL_LUNCH, or MEAL_DINNER
-     * @param items    List of food items from the AI scan
-     */
-    public static void addMeal(Context context, int mealType, List<FoodItem> items) {
-        addMealByName(context, MEAL_NAMES[mealType], items);
-    }
-
-    /**
-     * Add a meal to today's log by meal name string.
-     * @param context  Android context
-     * @param mealName "Breakfast", "Lunch", "Dinner", "Morning", "Afternoon", or "Evening"
-     * @param items    List of food items from the AI scan
-     */
-    public static void addMealByName(Context context, String mealName, List<FoodItem> items) {
-        DailyLog log = loadToday(context);
-
-        // Remove existing entry for this meal (replace it)
-        log.meals.removeIf(m -> m.mealName.equals(mealName));
-
-        MealEntry entry = new MealEntry(mealName);
-        double totalCal = 0, totalPro = 0, totalCarb = 0, totalFat = 0;
-
-        for (FoodItem item : items) {
-            double cal = item.getCalculatedCalories();
-            double pro = item.getCalculatedProtein();
-            double carb = item.getCalculatedCarbs();
-            double fat = item.getCalculatedFat();
-
-            entry.foods.add(new FoodSnapshot(
-                    item.getName(), item.getGrams(), cal, pro, carb, fat));
-
-            totalCal += cal;
-            totalPro += pro;
-            totalCarb += carb;
-            totalFat += fat;
+    /** Parses one day's stored JSON, or returns null if it is unreadable */
+    public static DailyLog parse(String json) {
+        try {
+            return gson.fromJson(json, DailyLog.class);
+        } catch (Exception e) {
+            return null;
         }
-
-        entry.totalCalories = totalCal;
-        entry.totalProtein = totalPro;
-        entry.totalCarbs = totalCarb;
-        entry.totalFat = totalFat;
-
-        log.meals.add(entry);
-        saveToday(context, log);
     }
 }
@@ -6,17 +6,21 @@ import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
+import android.database.Cursor;
 import android.os.Build;
 
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
 import com.calmahahh.app.TodayActivity;
 import com.calmahahh.app.db.AppDatabase;
 import com.calmahahh.app.db.PlanTask;
 import com.calmahahh.app.db.PlanTaskDao;
 
-import java.util.Calendar;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * Manages scheduling and cancelling local notifications for planner tasks.
@@ -28,8 +32,8 @@ public class TaskNotificationManager {
     public static final String CHANNEL_NAME = "Task Reminders";
     public static final String EXTRA_TASK_ID = "task_id";
     public static final String EXTRA_TASK_NAME = "task_name";
-
-    private static final String[] DAYS = {"Sunday", "Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday"};
+    public static final String EXTRA_DAY = "day_of_week"; // DayOfWeek.getValue()
+    private static final String ACTION_REMINDER = "com.calmahahh.app.TASK_REMINDER";
 
     /**
      * Creates the notification channel (required for Android 8+).
@@ -55,37 +59,25 @@ public class TaskNotificationManager {
      * Schedules alarms for all tasks with reminders enabled.
      */
     public static void scheduleAllReminders(Context context) {
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        executor.execute(() -> {
+        AppDatabase.readExecutor().execute(() -> {
             PlanTaskDao dao = AppDatabase.getInstance(context).planTaskDao();
             List<PlanTask> tasks = dao.getTasksWithReminders();
 
             for (PlanTask task : tasks) {
                 scheduleTaskReminder(context, task);
             }
-            executor.shutdown();
         });
     }
 
     /**
-     * Schedules a weekly repeating alarm for a task.
+     * Schedules a weekly repeating alarm for each day the task repeats on,
+     * and cancels the alarms of days it no longer repeats on.
      * Fires 10 minutes before the task start time.
      */
     public static void scheduleTaskReminder(Context context, PlanTask task) {
         AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
         if (alarmManager == null) return;
 
-        Intent intent = new Intent(context, TaskReminderReceiver.class);
-        intent.putExtra(EXTRA_TASK_ID, task.getId());
-        intent.putExtra(EXTRA_TASK_NAME, task.getTaskName());
-
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                context,
-                (int) task.getId(),
-                intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-
         // Parse start time
         String[] timeParts = task.getStartTime().split(":");
         int hour = 8, minute = 0;
@@ -93,60 +85,121 @@ public class TaskNotificationManager {
             hour = Integer.parseInt(timeParts[0]);
             minute = Integer.parseInt(timeParts[1]);
         } catch (Exception ignored) {}
+        int reminderMinute = hour * 60 + minute - 10;
+
+        for (DayOfWeek day : DayOfWeek.values()) {
+            PendingIntent pendingIntent = reminderIntent(context, task.getId(), day, task.getTaskName());
+            if (!task.repeatsOn(day)) {
+                alarmManager.cancel(pendingIntent);
+                continue;
+            }
 
-        // Subtract 10 minutes for reminder
-        minute -= 10;
-        if (minute < 0) {
-            minute += 60;
-            hour -= 1;
-            if (hour < 0) hour = 23;
+            // Next occurrence of this weekday's reminder time; 10 minutes before
+            // a task at 00:05 is the previous evening
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime next = now.toLocalDate().with(TemporalAdjusters.nextOrSame(day))
+                    .atStartOfDay().plusMinutes(reminderMinute);
+            while (!next.isAfter(now)) next = next.plusWeeks(1);
+
+            // Schedule repeating weekly alarm
+            alarmManager.setRepeating(
+                    AlarmManager.RTC_WAKEUP,
+                    next.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                    AlarmManager.INTERVAL_DAY * 7,
+                    pendingIntent
+            );
         }
+    }
 
-        // Find the day-of-week index
-        int targetDay = Calendar.MONDAY; // default
-        for (int i = 0; i < DAYS.length; i++) {
-            if (DAYS[i].equals(task.getDayOfWeek())) {
-                targetDay = i + 1; // Calendar days are 1-indexed
-                break;
-            }
+    /**
+     * Cancels the reminders of a task on every day.
+     */
+    public static void cancelTaskReminder(Context context, long taskId) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) return;
+
+        for (DayOfWeek day : DayOfWeek.values()) {
+            alarmManager.cancel(reminderIntent(context, taskId, day, null));
+        }
+        alarmManager.cancel(legacyReminderIntent(context, taskId));
+    }
+
+    /**
+     * One-shot pass after the move to day-mask reminders: cancels the single
+     * alarm every pre-migration task id had and schedules the per-day alarms
+     * in their place. Merged-away copies no longer load by id, so their
+     * reminders would otherwise be lost. Does nothing once it has run.
+     */
+    public static void upgradeLegacyReminders(Context context) {
+        AppDatabase.writeExecutor().execute(() -> upgradeLegacyRemindersNow(context));
+    }
+
+    /** {@link #upgradeLegacyReminders} on the calling thread, which must be the write executor */
+    static void upgradeLegacyRemindersNow(Context context) {
+        AppDatabase db = AppDatabase.getInstance(context);
+        SupportSQLiteDatabase sqlite = db.getOpenHelper().getWritableDatabase();
+        if (!hasLegacyTaskIds(sqlite)) return;
+
+        try (Cursor c = sqlite.query("SELECT oldId FROM `" + AppDatabase.LEGACY_TASK_IDS + "`")) {
+            while (c.moveToNext()) cancelLegacyReminder(context, c.getLong(0));
         }
+        for (PlanTask task : db.planTaskDao().getTasksWithReminders()) {
+            scheduleTaskReminder(context, task);
+        }
+        sqlite.execSQL("DROP TABLE `" + AppDatabase.LEGACY_TASK_IDS + "`");
+    }
 
-        // Calculate next occurrence
-        Calendar cal = Calendar.getInstance();
-        cal.set(Calendar.DAY_OF_WEEK, targetDay);
-        cal.set(Calendar.HOUR_OF_DAY, hour);
-        cal.set(Calendar.MINUTE, minute);
-        cal.set(Calendar.SECOND, 0);
-        cal.set(Calendar.MILLISECOND, 0);
-
-        // If time already passed this week, schedule for next week
-        if (cal.getTimeInMillis() <= System.currentTimeMillis()) {
-            cal.add(Calendar.WEEK_OF_YEAR, 1);
+    /**
+     * The task a pre-migration id was merged into, or the id itself if it was
+     * kept or the upgrade pass has already run. Call off the main thread.
+     */
+    static long mergedTaskId(Context context, long legacyId) {
+        SupportSQLiteDatabase sqlite = AppDatabase.getInstance(context).getOpenHelper().getWritableDatabase();
+        if (!hasLegacyTaskIds(sqlite)) return legacyId;
+        try (Cursor c = sqlite.query("SELECT keepId FROM `" + AppDatabase.LEGACY_TASK_IDS + "` WHERE oldId = ?",
+                new Object[]{legacyId})) {
+            return c.moveToFirst() ? c.getLong(0) : legacyId;
         }
+    }
 
-        // Schedule repeating weekly alarm
-        alarmManager.setRepeating(
-                AlarmManager.RTC_WAKEUP,
-                cal.getTimeInMillis(),
-                AlarmManager.INTERVAL_DAY * 7,
-                pendingIntent
-        );
+    private static boolean hasLegacyTaskIds(SupportSQLiteDatabase sqlite) {
+        try (Cursor c = sqlite.query("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?",
+                new Object[]{AppDatabase.LEGACY_TASK_IDS})) {
+            return c.moveToFirst();
+        }
     }
 
     /**
-     * Cancels reminder for a specific task.
+     * Cancels the single alarm a task had before tasks repeated by day mask.
+     * Those alarms reach the receiver without {@link #EXTRA_DAY}.
      */
-    public static void cancelTaskReminder(Context context, long taskId) {
+    public static void cancelLegacyReminder(Context context, long taskId) {
         AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        if (alarmManager == null) return;
+        if (alarmManager != null) alarmManager.cancel(legacyReminderIntent(context, taskId));
+    }
+
+    /** Each (task, day) alarm has its own request code so the seven can coexist */
+    private static PendingIntent reminderIntent(Context context, long taskId, DayOfWeek day, String taskName) {
+        // The action keeps these apart from legacy intents that share a request code
+        Intent intent = new Intent(context, TaskReminderReceiver.class).setAction(ACTION_REMINDER);
+        intent.putExtra(EXTRA_TASK_ID, taskId);
+        intent.putExtra(EXTRA_TASK_NAME, taskName);
+        intent.putExtra(EXTRA_DAY, day.getValue());
+        return PendingIntent.getBroadcast(
+                context,
+                (int) (taskId * 8 + day.getValue()),
+                intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+    }
 
+    private static PendingIntent legacyReminderIntent(Context context, long taskId) {
         Intent intent = new Intent(context, TaskReminderReceiver.class);
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(
+        return PendingIntent.getBroadcast(
                 context,
                 (int) taskId,
                 intent,
                 PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
         );
-        alarmManager.cancel(pendingIntent);
     }
 }
@@ -15,6 +15,10 @@ import android.content.pm.PackageManager;
 
 import com.calmahahh.app.R;
 import com.calmahahh.app.TodayActivity;
+import com.calmahahh.app.db.AppDatabase;
+import com.calmahahh.app.db.PlanTask;
+
+import java.time.LocalDate;
 
 /**
  * Receives alarm broadcasts and shows notification for task reminders.
@@ -26,6 +30,38 @@ public class TaskReminderReceiver extends BroadcastReceiver {
         long taskId = intent.getLongExtra(TaskNotificationManager.EXTRA_TASK_ID, -1);
         String taskName = intent.getStringExtra(TaskNotificationManager.EXTRA_TASK_NAME);
 
+        if (!intent.hasExtra(TaskNotificationManager.EXTRA_DAY)) {
+            upgradeLegacyReminder(context, taskId);
+            return;
+        }
+        showReminder(context, taskId, taskName);
+    }
+
+    /**
+     * An alarm set before tasks repeated by day mask. Runs the one-shot upgrade
+     * of all such alarms if it has not run yet, then shows the reminder if the
+     * task, or the one it was merged into, still runs today.
+     */
+    private void upgradeLegacyReminder(Context context, long legacyId) {
+        PendingResult result = goAsync();
+        AppDatabase.writeExecutor().execute(() -> {
+            try {
+                long taskId = TaskNotificationManager.mergedTaskId(context, legacyId);
+                TaskNotificationManager.cancelLegacyReminder(context, legacyId);
+                TaskNotificationManager.upgradeLegacyRemindersNow(context);
+                PlanTask task = AppDatabase.getInstance(context).planTaskDao().getTaskById(taskId);
+                if (task == null || !task.isReminderEnabled()) return;
+                TaskNotificationManager.scheduleTaskReminder(context, task);
+                if (task.repeatsOn(LocalDate.now().getDayOfWeek())) {
+                    showReminder(context, taskId, task.getTaskName());
+                }
+            } finally {
+                result.finish();
+            }
+        });
+    }
+
+    private static void showReminder(Context context, long taskId, String taskName) {
         if (taskName == null) taskName = "Task";
 
         // Create intent to open Today screen when notification is tapped
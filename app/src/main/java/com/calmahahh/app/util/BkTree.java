@@ -0,0 +1,141 @@
+package com.calmahahh.app.util;
+
+import java.util.Arrays;
+
+/**
+ * Burkhard-Keller tree over 64-bit perceptual hashes with Hamming distance.
+ *
+ * Each child is filed under its distance to the parent, so by the triangle
+ * inequality a search within radius r only descends into children whose edge
+ * is within r of the query's distance to the parent. Nodes live in parallel
+ * arrays (first child / next sibling) rather than objects, so tens of
+ * thousands of hashes take a few hundred KB and no per-node allocation.
+ * A removed hash stays in place as a dead node that still routes searches
+ * but is never returned; adding it again revives it.
+ */
+public final class BkTree {
+
+    /** The closest stored hash found by {@link #nearest} */
+    public static final class Match {
+        public final long hash;
+        public final int distance;
+
+        Match(long hash, int distance) {
+            this.hash = hash;
+            this.distance = distance;
+        }
+    }
+
+    private long[] hashes = new long[64];
+    private int[] edge = new int[64];        // distance to the parent node
+    private int[] firstChild = new int[64];
+    private int[] nextSibling = new int[64];
+    private boolean[] dead = new boolean[64];
+    private int size;
+    private int live;
+    private int[] stack = new int[64];
+
+    /** Number of hashes stored, not counting removed ones */
+    public synchronized int size() {
+        return live;
+    }
+
+    /** Adds a hash; returns false if it is already present */
+    public synchronized boolean add(long hash) {
+        if (size == 0) {
+            newNode(hash, 0);
+            return true;
+        }
+        int node = 0;
+        while (true) {
+            int d = distance(hash, hashes[node]);
+            if (d == 0) {
+                if (!dead[node]) return false;
+                dead[node] = false;
+                live++;
+                return true;
+            }
+            int child = firstChild[node];
+            while (child >= 0 && edge[child] != d) child = nextSibling[child];
+            if (child < 0) {
+                int added = newNode(hash, d);
+                nextSibling[added] = firstChild[node];
+                firstChild[node] = added;
+                return true;
+            }
+            node = child;
+        }
+    }
+
+    /** Removes a hash so {@link #nearest} skips it; returns false if it was not present */
+    public synchronized boolean remove(long hash) {
+        if (size == 0) return false;
+        int node = 0;
+        while (true) {
+            int d = distance(hash, hashes[node]);
+            if (d == 0) {
+                if (dead[node]) return false;
+                dead[node] = true;
+                live--;
+                return true;
+            }
+            int child = firstChild[node];
+            while (child >= 0 && edge[child] != d) child = nextSibling[child];
+            if (child < 0) return false;
+            node = child;
+        }
+    }
+
+    /** The stored hash closest to {@code hash} within {@code maxDistance} bits, or null */
+    public synchronized Match nearest(long hash, int maxDistance) {
+        if (size == 0) return null;
+        long bestHash = 0;
+        int best = maxDistance + 1;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            int d = distance(hash, hashes[node]);
+            if (d < best && !dead[node]) {
+                best = d;
+                bestHash = hashes[node];
+                if (d == 0) break;
+            }
+            // Shrink the search radius to the best match found so far
+            int radius = Math.min(maxDistance, best - 1);
+            for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+                if (Math.abs(edge[child] - d) <= radius) {
+                    if (top == stack.length) stack = grow(stack);
+                    stack[top++] = child;
+                }
+            }
+        }
+        return best <= maxDistance ? new Match(bestHash, best) : null;
+    }
+
+    private int newNode(long hash, int distance) {
+        if (size == hashes.length) {
+            int capacity = size * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            edge = Arrays.copyOf(edge, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            dead = Arrays.copyOf(dead, capacity);
+        }
+        hashes[size] = hash;
+        edge[size] = distance;
+        firstChild[size] = -1;
+        nextSibling[size] = -1;
+        live++;
+        return size++;
+    }
+
+    /** Same as {@link ImageUtils#hammingDistance}, kept here so the tree has no Android dependency */
+    private static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    private static int[] grow(int[] array) {
+        return Arrays.copyOf(array, array.length * 2);
+    }
+}
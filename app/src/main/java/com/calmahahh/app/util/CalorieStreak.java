@@ -0,0 +1,75 @@
+package com.calmahahh.app.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.calmahahh.app.db.DailySummary;
+import com.calmahahh.app.db.DailySummaryDao;
+import com.calmahahh.app.db.StreakRun;
+
+import java.time.LocalDate;
+
+/**
+ * Current calorie-logging streak and its average accuracy against the target.
+ *
+ * The run of logged days ending yesterday cannot change while the user only
+ * edits today, so it is computed once per day with a single query and cached.
+ * The current streak is then that cached run plus today's summary row.
+ * Call {@link #invalidate(Context)} after editing any day other than today.
+ */
+public class CalorieStreak {
+
+    private static final String PREFS_NAME = "calorie_streak_cache";
+    private static final String KEY_ANCHOR = "anchor_epoch_day";
+    private static final String KEY_DAYS = "prior_days";
+    private static final String KEY_CALORIES = "prior_calories";
+
+    public final int days;
+    public final double averageAccuracy; // percent of target, not capped
+
+    private CalorieStreak(int days, double averageAccuracy) {
+        this.days = days;
+        this.averageAccuracy = averageAccuracy;
+    }
+
+    /**
+     * Computes the streak ending today. Runs database queries, so call it
+     * off the main thread.
+     */
+    public static CalorieStreak compute(Context context, DailySummaryDao dao, int targetCalories) {
+        LocalDate today = LocalDate.now();
+        LocalDate yesterday = today.minusDays(1);
+
+        DailySummary todaySummary = dao.getForDate(today);
+        if (todaySummary == null || todaySummary.totalCalories <= 0) {
+            return new CalorieStreak(0, 0);
+        }
+
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        int priorDays;
+        double priorCalories;
+        if (prefs.getLong(KEY_ANCHOR, Long.MIN_VALUE) == yesterday.toEpochDay()) {
+            priorDays = prefs.getInt(KEY_DAYS, 0);
+            priorCalories = Double.longBitsToDouble(prefs.getLong(KEY_CALORIES, 0));
+        } else {
+            StreakRun run = dao.getStreakEndingOn(yesterday);
+            priorDays = run.days;
+            priorCalories = run.totalCalories;
+            prefs.edit()
+                    .putLong(KEY_ANCHOR, yesterday.toEpochDay())
+                    .putInt(KEY_DAYS, priorDays)
+                    .putLong(KEY_CALORIES, Double.doubleToRawLongBits(priorCalories))
+                    .apply();
+        }
+
+        int days = priorDays + 1;
+        double calories = priorCalories + todaySummary.totalCalories;
+        double accuracy = targetCalories > 0 ? (calories / days / targetCalories) * 100 : 0;
+        return new CalorieStreak(days, accuracy);
+    }
+
+    /** Drops the cached run so the next {@link #compute} re-queries it. */
+    public static void invalidate(Context context) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit().clear().apply();
+    }
+}
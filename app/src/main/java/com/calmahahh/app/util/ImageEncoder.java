@@ -0,0 +1,137 @@
+package com.calmahahh.app.util;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.os.SystemClock;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Encodes a scan photo for upload within the {@link ScanSettings} byte budget.
+ *
+ * The photo is optionally cropped to a centered square, scaled to the exact
+ * long edge, then JPEG quality is binary-searched in steps of
+ * {@link #QUALITY_STEP} for the highest quality that fits. WebP is tried at
+ * that quality and kept if smaller. If even the lowest quality is over budget
+ * the image is shrunk and searched again. Call off the main thread; each
+ * probe is a full compress.
+ */
+public final class ImageEncoder {
+
+    private static final int MIN_QUALITY = 40;
+    private static final int MAX_QUALITY = 90;
+    private static final int QUALITY_STEP = 5;
+    private static final int MAX_SHRINKS = 3;
+    private static final float SHRINK = 0.8f;
+
+    /** An encoded image and what it took to produce it */
+    public static final class Result {
+        public final byte[] bytes; // only the first {@code length} bytes are the image
+        public final int length;
+        public final String mimeType;
+        public final int width;
+        public final int height;
+        public final int quality;
+        public final long encodeMillis;
+
+        Result(EncodeBuffer buffer, String mimeType, int width, int height, int quality, long encodeMillis) {
+            this.bytes = buffer.bytes();
+            this.length = buffer.size();
+            this.mimeType = mimeType;
+            this.width = width;
+            this.height = height;
+            this.quality = quality;
+            this.encodeMillis = encodeMillis;
+        }
+    }
+
+    private ImageEncoder() {}
+
+    public static Result encode(Bitmap source, ScanSettings settings) {
+        long start = SystemClock.elapsedRealtime();
+        int budget = settings.byteBudget();
+
+        Bitmap cropped = settings.cropToCenter ? centerSquare(source) : source;
+        int longEdge = Math.min(settings.longEdge(), Math.max(cropped.getWidth(), cropped.getHeight()));
+        EncodeBuffer jpeg = new EncodeBuffer(budget + budget / 4);
+
+        Bitmap scaled = null;
+        int quality = MIN_QUALITY;
+        for (int shrink = 0; shrink <= MAX_SHRINKS; shrink++) {
+            if (scaled != null && scaled != cropped) scaled.recycle();
+            scaled = scaleToLongEdge(cropped, longEdge);
+            quality = bestQuality(scaled, budget, jpeg);
+            if (quality >= 0) break;
+            longEdge = Math.round(longEdge * SHRINK);
+        }
+        if (quality < 0) quality = MIN_QUALITY; // still over budget; send the smallest we made
+        compress(scaled, Bitmap.CompressFormat.JPEG, quality, jpeg);
+
+        EncodeBuffer webp = new EncodeBuffer(jpeg.size());
+        compress(scaled, webpFormat(), quality, webp);
+        boolean useWebp = webp.size() < jpeg.size();
+
+        int width = scaled.getWidth(), height = scaled.getHeight();
+        if (scaled != cropped) scaled.recycle();
+        if (cropped != source) cropped.recycle();
+
+        return new Result(useWebp ? webp : jpeg, useWebp ? "image/webp" : "image/jpeg",
+                width, height, quality, SystemClock.elapsedRealtime() - start);
+    }
+
+    /** Highest JPEG quality on the step grid within budget, or -1 if none is */
+    private static int bestQuality(Bitmap bitmap, int budget, EncodeBuffer buffer) {
+        int lo = 0, hi = (MAX_QUALITY - MIN_QUALITY) / QUALITY_STEP, best = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int quality = MIN_QUALITY + mid * QUALITY_STEP;
+            compress(bitmap, Bitmap.CompressFormat.JPEG, quality, buffer);
+            if (buffer.size() <= budget) {
+                best = quality;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return best;
+    }
+
+    private static void compress(Bitmap bitmap, Bitmap.CompressFormat format, int quality, EncodeBuffer buffer) {
+        buffer.reset();
+        bitmap.compress(format, quality, buffer);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat webpFormat() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY
+                : Bitmap.CompressFormat.WEBP;
+    }
+
+    /** Plates sit in the middle of the shot; the square drops the table around them */
+    private static Bitmap centerSquare(Bitmap source) {
+        int side = Math.min(source.getWidth(), source.getHeight());
+        if (side == source.getWidth() && side == source.getHeight()) return source;
+        return Bitmap.createBitmap(source,
+                (source.getWidth() - side) / 2, (source.getHeight() - side) / 2, side, side);
+    }
+
+    private static Bitmap scaleToLongEdge(Bitmap source, int longEdge) {
+        int width = source.getWidth(), height = source.getHeight();
+        float scale = (float) longEdge / Math.max(width, height);
+        if (scale >= 1f) return source;
+        return Bitmap.createScaledBitmap(source,
+                Math.max(1, Math.round(width * scale)), Math.max(1, Math.round(height * scale)), true);
+    }
+
+    /** Exposes its buffer so the encoded image is not copied out */
+    static class EncodeBuffer extends ByteArrayOutputStream {
+        EncodeBuffer(int initialSize) {
+            super(Math.max(initialSize, 32 * 1024));
+        }
+
+        byte[] bytes() {
+            return buf;
+        }
+    }
+}
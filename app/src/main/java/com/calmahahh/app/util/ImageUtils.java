@@ -4,21 +4,19 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.net.Uri;
-import android.util.Base64;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
 /**
- * Utility class for image loading, resizing and Base64 encoding.
+ * Utility class for image loading, resizing and perceptual hashing.
  */
 public class ImageUtils {
 
     /**
-     * Loads a bitmap from a URI and downsamples it so neither dimension
-     * exceeds {@code maxDimension} pixels.  This keeps memory usage and
-     * upload payload size reasonable.
+     * Loads a bitmap from a URI and downsamples it so its longer side is
+     * exactly {@code maxDimension} pixels (smaller images are left as they
+     * are). This keeps memory usage and upload payload size reasonable.
      */
     public static Bitmap loadAndResizeBitmap(Context context, Uri uri, int maxDimension)
             throws IOException {
@@ -32,17 +30,23 @@ public class ImageUtils {
         BitmapFactory.decodeStream(in, null, opts);
         in.close();
 
-        // 2. Calculate a power-of-two sample size
-        int width = opts.outWidth;
-        int height = opts.outHeight;
+        // 2. Largest power-of-two sample size that stays at or above the target,
+        //    so the decoder reads less and the final scale is always a downscale
+        int longEdge = Math.max(opts.outWidth, opts.outHeight);
         int inSampleSize = 1;
-        while (width / inSampleSize > maxDimension || height / inSampleSize > maxDimension) {
+        while (longEdge / (inSampleSize * 2) >= maxDimension) {
             inSampleSize *= 2;
         }
 
-        // 3. Decode with the sample size
+        // 3. Decode with the sample size, scaling the rest of the way during decode
         opts = new BitmapFactory.Options();
         opts.inSampleSize = inSampleSize;
+        int sampledEdge = longEdge / inSampleSize;
+        if (sampledEdge > maxDimension) {
+            opts.inScaled = true;
+            opts.inDensity = sampledEdge;
+            opts.inTargetDensity = maxDimension;
+        }
 
         in = context.getContentResolver().openInputStream(uri);
         if (in == null) throw new IOException("Cannot open image stream");
@@ -50,20 +54,39 @@ public class ImageUtils {
         in.close();
 
         if (bitmap == null) throw new IOException("Failed to decode image");
+        // The density was only a scaling ratio; without this views would rescale it again
+        bitmap.setDensity(Bitmap.DENSITY_NONE);
         return bitmap;
     }
 
     /**
-     * Compresses a bitmap to JPEG and returns its Base64-encoded string
-     * (no line wrapping).
-     *
-     * @param bitmap  the source bitmap
-     * @param quality JPEG quality 0-100
+     * 64-bit difference hash: the image is shrunk to 9x8 grey pixels and each
+     * bit records whether a pixel is brighter than its right neighbour. Re-encoding,
+     * resizing and small exposure changes leave most bits unchanged, so similar
+     * photos have a small {@link #hammingDistance}.
      */
-    public static String bitmapToBase64(Bitmap bitmap, int quality) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.JPEG, quality, baos);
-        byte[] bytes = baos.toByteArray();
-        return Base64.encodeToString(bytes, Base64.NO_WRAP);
+    public static long dHash(Bitmap bitmap) {
+        Bitmap small = Bitmap.createScaledBitmap(bitmap, 9, 8, true);
+        int[] pixels = new int[9 * 8];
+        small.getPixels(pixels, 0, 9, 0, 0, 9, 8);
+        if (small != bitmap) small.recycle();
+
+        long hash = 0;
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                hash <<= 1;
+                if (luma(pixels[y * 9 + x]) > luma(pixels[y * 9 + x + 1])) hash |= 1;
+            }
+        }
+        return hash;
+    }
+
+    /** Number of differing bits between two {@link #dHash} values */
+    public static int hammingDistance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    private static int luma(int argb) {
+        return (((argb >> 16) & 0xFF) * 299 + ((argb >> 8) & 0xFF) * 587 + (argb & 0xFF) * 114) / 1000;
     }
 }
@@ -0,0 +1,51 @@
+package com.calmahahh.app.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.time.LocalDate;
+
+/**
+ * How long raw meal entries are kept before the compaction job folds them
+ * into one row per day and meal, and whether they are archived first.
+ * Compaction is off until the user picks a period in settings.
+ */
+public class RetentionPolicy {
+    private static final String PREF_NAME = "retention_prefs";
+    private static final String KEY_MONTHS = "retention_months";
+    private static final String KEY_ARCHIVE = "archive_before_compact";
+
+    /** Choices offered in the settings dialog; 0 keeps every entry */
+    public static final int[] MONTH_OPTIONS = {0, 3, 6, 12, 24};
+    public static final int DEFAULT_MONTHS = 0;
+
+    public final int months;
+    public final boolean archive;
+
+    private RetentionPolicy(int months, boolean archive) {
+        this.months = months;
+        this.archive = archive;
+    }
+
+    public static RetentionPolicy load(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        return new RetentionPolicy(prefs.getInt(KEY_MONTHS, DEFAULT_MONTHS),
+                prefs.getBoolean(KEY_ARCHIVE, true));
+    }
+
+    public static void save(Context context, int months, boolean archive) {
+        context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE).edit()
+                .putInt(KEY_MONTHS, months)
+                .putBoolean(KEY_ARCHIVE, archive)
+                .apply();
+    }
+
+    public boolean isEnabled() {
+        return months > 0;
+    }
+
+    /** Entries dated before this day are compacted */
+    public LocalDate cutoff(LocalDate today) {
+        return today.minusMonths(months).withDayOfMonth(1);
+    }
+}
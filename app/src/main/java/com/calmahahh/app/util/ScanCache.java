@@ -0,0 +1,174 @@
+package com.calmahahh.app.util;
+
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.calmahahh.app.db.AppDatabase;
+import com.calmahahh.app.db.ScanCacheDao;
+import com.calmahahh.app.db.ScanCacheEntry;
+import com.calmahahh.app.model.FoodItem;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Two-level cache of food scan results, so scanning the same plate again
+ * skips the Gemini call and its rate limit.
+ *
+ * Keys are the photo's {@link ImageUtils#dHash} plus the user's context after
+ * {@link #normalizeContext}. Recent results live in a small in-memory LRU;
+ * everything else is in the scan_cache table, trimmed to the most recently
+ * used {@link #DISK_ENTRIES}. Values are stored as JSON and parsed on every
+ * hit, so portion edits on a returned list never leak back into the cache.
+ *
+ * On an exact miss, {@link #findSimilar} searches a {@link BkTree} of every
+ * stored hash for a near-duplicate photo. The tree is built from the table on
+ * first use and kept up to date by {@link #put}.
+ * Lookups touch the database; call off the main thread.
+ */
+public final class ScanCache {
+
+    private static final String TAG = "ScanCache";
+    private static final int MEMORY_ENTRIES = 32;
+    private static final int DISK_ENTRIES = 10_000;
+    /** Bits of 64 two dHashes may differ by and still count as the same plate */
+    private static final int SIMILAR_DISTANCE = 6;
+
+    private static final Gson gson = new Gson();
+    private static final Type FOOD_LIST = new TypeToken<List<FoodItem>>() {}.getType();
+    private static final LruCache<String, String> memory = new LruCache<>(MEMORY_ENTRIES);
+
+    private static final AtomicInteger memoryHits = new AtomicInteger();
+    private static final AtomicInteger diskHits = new AtomicInteger();
+    private static final AtomicInteger misses = new AtomicInteger();
+
+    private static volatile BkTree index;
+
+    /** A past scan that looks like the current photo */
+    public static final class Match {
+        public final List<FoodItem> foods;
+        public final long scannedAt; // epoch millis of the original scan
+        public final int distance;
+
+        Match(List<FoodItem> foods, long scannedAt, int distance) {
+            this.foods = foods;
+            this.scannedAt = scannedAt;
+            this.distance = distance;
+        }
+    }
+
+    private ScanCache() {}
+
+    /** Case, spacing and punctuation do not change what the user meant */
+    public static String normalizeContext(String context) {
+        if (context == null) return "";
+        return context.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    /** Returns a fresh copy of the cached foods, or null on a miss */
+    public static List<FoodItem> get(ScanCacheDao dao, long imageHash, String context) {
+        long start = SystemClock.elapsedRealtime();
+        String key = key(imageHash, context);
+
+        String json = memory.get(key);
+        if (json != null) {
+            memoryHits.incrementAndGet();
+            return hit("memory", json, start);
+        }
+
+        ScanCacheEntry entry = dao.get(imageHash, context);
+        if (entry != null) {
+            diskHits.incrementAndGet();
+            memory.put(key, entry.foodsJson);
+            long now = System.currentTimeMillis();
+            AppDatabase.writeExecutor().execute(() -> dao.touch(imageHash, context, now));
+            return hit("disk", entry.foodsJson, start);
+        }
+
+        misses.incrementAndGet();
+        Log.d(TAG, "miss (" + stats() + ")");
+        return null;
+    }
+
+    /**
+     * The closest earlier scan within {@link #SIMILAR_DISTANCE} bits, under any
+     * context, or null. The first call loads every stored hash into the index.
+     * Hashes whose entries were trimmed since they were indexed are dropped
+     * from the index and the search goes on to the next closest.
+     */
+    public static Match findSimilar(ScanCacheDao dao, long imageHash) {
+        BkTree tree = index(dao);
+        long start = SystemClock.elapsedRealtime();
+        try {
+            BkTree.Match near;
+            while ((near = tree.nearest(imageHash, SIMILAR_DISTANCE)) != null) {
+                ScanCacheEntry entry = dao.getLatestForHash(near.hash);
+                if (entry != null) {
+                    return new Match(gson.fromJson(entry.foodsJson, FOOD_LIST), entry.createdAt, near.distance);
+                }
+                tree.remove(near.hash);
+            }
+            return null;
+        } finally {
+            Log.d(TAG, "similar lookup over " + tree.size() + " hashes in "
+                    + (SystemClock.elapsedRealtime() - start) + " ms");
+        }
+    }
+
+    private static BkTree index(ScanCacheDao dao) {
+        BkTree tree = index;
+        if (tree == null) {
+            synchronized (ScanCache.class) {
+                tree = index;
+                if (tree == null) {
+                    long start = SystemClock.elapsedRealtime();
+                    tree = new BkTree();
+                    for (long hash : dao.getAllHashes()) tree.add(hash);
+                    Log.i(TAG, "Indexed " + tree.size() + " scan hashes in "
+                            + (SystemClock.elapsedRealtime() - start) + " ms");
+                    index = tree;
+                }
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * Stores a parsed result in both levels. The foods are serialized before
+     * returning, so the caller may hand the list to the UI straight after.
+     */
+    public static void put(ScanCacheDao dao, long imageHash, String context, List<FoodItem> foods) {
+        String json = gson.toJson(foods, FOOD_LIST);
+        memory.put(key(imageHash, context), json);
+        long now = System.currentTimeMillis();
+        AppDatabase.writeExecutor().execute(() -> {
+            dao.put(new ScanCacheEntry(imageHash, context, json, now, now), DISK_ENTRIES);
+            // Indexed only once the row exists, so findSimilar never drops it as trimmed
+            BkTree tree = index;
+            if (tree != null) tree.add(imageHash);
+        });
+    }
+
+    /** Hit and miss counts since the process started */
+    public static String stats() {
+        int hits = memoryHits.get() + diskHits.get();
+        int total = hits + misses.get();
+        return String.format(Locale.US, "%d memory + %d disk hits, %d misses, %.0f%% hit rate",
+                memoryHits.get(), diskHits.get(), misses.get(), total > 0 ? hits * 100.0 / total : 0);
+    }
+
+    private static List<FoodItem> hit(String level, String json, long start) {
+        List<FoodItem> foods = gson.fromJson(json, FOOD_LIST);
+        Log.d(TAG, level + " hit in " + (SystemClock.elapsedRealtime() - start) + " ms (" + stats() + ")");
+        return foods;
+    }
+
+    private static String key(long imageHash, String context) {
+        return Long.toHexString(imageHash) + '|' + context;
+    }
+}
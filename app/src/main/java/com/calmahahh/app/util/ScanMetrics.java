@@ -0,0 +1,55 @@
+package com.calmahahh.app.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.util.Locale;
+
+/**
+ * Upload size, encode time and Gemini response time of each scan. Every scan
+ * is logged, and running totals are kept so the settings dialog can show the
+ * averages for the current {@link ScanSettings}.
+ */
+public final class ScanMetrics {
+
+    private static final String TAG = "ScanMetrics";
+    private static final String PREFS_NAME = "scan_metrics";
+    private static final String KEY_COUNT = "count";
+    private static final String KEY_BYTES = "total_bytes";
+    private static final String KEY_ENCODE_MS = "total_encode_ms";
+    private static final String KEY_LATENCY_MS = "total_latency_ms";
+
+    private ScanMetrics() {}
+
+    /** @param latencyMillis time from sending the request to the parsed response */
+    public static synchronized void record(Context context, ImageEncoder.Result image, long latencyMillis) {
+        Log.i(TAG, String.format(Locale.US, "%dx%d %s q%d, %d KB, encode %d ms, response %d ms",
+                image.width, image.height, image.mimeType, image.quality, image.length / 1024,
+                image.encodeMillis, latencyMillis));
+
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit()
+                .putInt(KEY_COUNT, prefs.getInt(KEY_COUNT, 0) + 1)
+                .putLong(KEY_BYTES, prefs.getLong(KEY_BYTES, 0) + image.length)
+                .putLong(KEY_ENCODE_MS, prefs.getLong(KEY_ENCODE_MS, 0) + image.encodeMillis)
+                .putLong(KEY_LATENCY_MS, prefs.getLong(KEY_LATENCY_MS, 0) + latencyMillis)
+                .apply();
+    }
+
+    /** Resets the totals, so averages reflect settings changed after this */
+    public static void reset(Context context) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit().clear().apply();
+    }
+
+    /** Averages since the last reset, or null before the first scan */
+    public static String describe(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        int count = prefs.getInt(KEY_COUNT, 0);
+        if (count == 0) return null;
+        return String.format(Locale.US, "Last %d scans: %d KB upload, %d ms encode, %.1f s response on average",
+                count, prefs.getLong(KEY_BYTES, 0) / count / 1024,
+                prefs.getLong(KEY_ENCODE_MS, 0) / count,
+                prefs.getLong(KEY_LATENCY_MS, 0) / (count * 1000.0));
+    }
+}
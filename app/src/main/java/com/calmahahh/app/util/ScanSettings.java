@@ -0,0 +1,55 @@
+package com.calmahahh.app.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * How scan photos are encoded for upload: a size level that sets the long
+ * edge and byte budget, and whether to crop to the center of the photo.
+ */
+public class ScanSettings {
+    private static final String PREF_NAME = "scan_prefs";
+    private static final String KEY_LEVEL = "upload_level";
+    private static final String KEY_CROP = "crop_to_center";
+
+    /** Choices offered in the settings dialog, smallest upload first */
+    public static final String[] LEVEL_NAMES = {"Small", "Balanced", "Detailed"};
+    private static final int[] LONG_EDGES = {640, 896, 1024};
+    private static final int[] BUDGET_KB = {64, 128, 256};
+    public static final int DEFAULT_LEVEL = 1;
+
+    public final int level;
+    public final boolean cropToCenter;
+
+    private ScanSettings(int level, boolean cropToCenter) {
+        this.level = Math.max(0, Math.min(LEVEL_NAMES.length - 1, level));
+        this.cropToCenter = cropToCenter;
+    }
+
+    public static ScanSettings load(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        return new ScanSettings(prefs.getInt(KEY_LEVEL, DEFAULT_LEVEL),
+                prefs.getBoolean(KEY_CROP, false));
+    }
+
+    public static void save(Context context, int level, boolean cropToCenter) {
+        context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE).edit()
+                .putInt(KEY_LEVEL, level)
+                .putBoolean(KEY_CROP, cropToCenter)
+                .apply();
+    }
+
+    /** Pixels on the longer side of the uploaded image */
+    public int longEdge() {
+        return LONG_EDGES[level];
+    }
+
+    /** Largest encoded image, in bytes before Base64 */
+    public int byteBudget() {
+        return BUDGET_KB[level] * 1024;
+    }
+
+    public static String describeLevel(int level) {
+        return LEVEL_NAMES[level] + " (" + LONG_EDGES[level] + " px, up to " + BUDGET_KB[level] + " KB)";
+    }
+}
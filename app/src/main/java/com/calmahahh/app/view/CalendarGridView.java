@@ -10,6 +10,7 @@ import android.view.MotionEvent;
 import android.view.View;
 
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Locale;
@@ -22,7 +23,7 @@ import java.util.Map;
 public class CalendarGridView extends View {
 
     public interface OnDateClickListener {
-        void onDateClick(String date); // yyyy-MM-dd
+        void onDateClick(LocalDate date);
     }
 
     private static final String[] DAY_LABELS = {"Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat"};
@@ -43,18 +44,17 @@ public class CalendarGridView extends View {
     private Paint paintDayBg, paintText, paintHeader, paintBorder, paintCalText;
     private Calendar displayMonth;
     private Calendar today;
-    private String selectedDate;
+    private LocalDate selectedDate;
     private int targetCalories = 2000;
 
     // date -> totalCalories for the displayed month
-    private Map<String, Double> calorieData = new HashMap<>();
+    private Map<LocalDate, Double> calorieData = new HashMap<>();
 
     private OnDateClickListener listener;
     private GestureDetector gestureDetector;
 
     private float cellWidth, cellHeight;
     private int rows;
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
 
     public CalendarGridView(Context context) {
         super(context);
@@ -124,12 +124,12 @@ public class CalendarGridView extends View {
         invalidate();
     }
 
-    public void setCalorieData(Map<String, Double> data) {
+    public void setCalorieData(Map<LocalDate, Double> data) {
         this.calorieData = data != null ? data : new HashMap<>();
         invalidate();
     }
 
-    public void setSelectedDate(String date) {
+    public void setSelectedDate(LocalDate date) {
         this.selectedDate = date;
         invalidate();
     }
@@ -212,11 +212,11 @@ public class CalendarGridView extends View {
             float y = headerHeight + row * cellHeight;
 
             cal.set(Calendar.DAY_OF_MONTH, day);
-            String dateStr = dateFormat.format(cal.getTime());
+            LocalDate date = toLocalDate(cal);
 
             // Determine color
             RectF rect = new RectF(x + 3, y + 3, x + cellWidth - 3, y + cellHeight - 3);
-            Double cals = calorieData.get(dateStr);
+            Double cals = calorieData.get(date);
 
             if (cals != null && cals > 0) {
                 double ratio = cals / targetCalories;
@@ -244,7 +244,7 @@ public class CalendarGridView extends View {
             }
 
             // Selected border
-            if (dateStr.equals(selectedDate)) {
+            if (date.equals(selectedDate)) {
                 paintBorder.setColor(COLOR_SELECTED);
                 paintBorder.setStrokeWidth(dpToPx(2.5f));
                 canvas.drawRoundRect(rect, dpToPx(6), dpToPx(6), paintBorder);
@@ -286,15 +286,19 @@ public class CalendarGridView extends View {
         int day = row * COLS + col - firstDayOfWeek + 1;
         if (day >= 1 && day <= daysInMonth) {
             cal.set(Calendar.DAY_OF_MONTH, day);
-            String dateStr = dateFormat.format(cal.getTime());
-            selectedDate = dateStr;
+            selectedDate = toLocalDate(cal);
             invalidate();
             if (listener != null) {
-                listener.onDateClick(dateStr);
+                listener.onDateClick(selectedDate);
             }
         }
     }
 
+    private static LocalDate toLocalDate(Calendar cal) {
+        return LocalDate.of(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1,
+                cal.get(Calendar.DAY_OF_MONTH));
+    }
+
     private float dpToPx(float dp) {
         return dp * getResources().getDisplayMetrics().density;
     }
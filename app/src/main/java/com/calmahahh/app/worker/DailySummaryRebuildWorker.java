@@ -0,0 +1,70 @@
+package com.calmahahh.app.worker;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.calmahahh.app.db.AppDatabase;
+import com.calmahahh.app.db.MealEntryDao;
+import com.calmahahh.app.model.UserProfile;
+import com.calmahahh.app.util.CalorieStreak;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background verification of the daily_summary table.
+ * Recomputes summaries from raw meal entries for every date that drifted
+ * (including the initial fill for data logged before summaries were maintained).
+ */
+public class DailySummaryRebuildWorker extends Worker {
+
+    private static final String TAG = "DailySummaryRebuild";
+    private static final String WORK_NAME = "daily_summary_rebuild";
+
+    public DailySummaryRebuildWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Enqueues the daily verification job. Safe to call on every launch;
+     * an already scheduled job is kept.
+     */
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresBatteryNotLow(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                DailySummaryRebuildWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(
+                WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        AppDatabase db = AppDatabase.getInstance(getApplicationContext());
+        MealEntryDao mealEntryDao = db.mealEntryDao();
+        int target = UserProfile.load(getApplicationContext()).getTargetCalories();
+
+        List<LocalDate> drifted = db.dailySummaryDao().getDriftedDates();
+        if (drifted.isEmpty()) return Result.success();
+
+        db.runInTransaction(() -> {
+            for (LocalDate date : drifted) mealEntryDao.syncDailySummary(date, target);
+        });
+        CalorieStreak.invalidate(getApplicationContext());
+        Log.i(TAG, "Repaired " + drifted.size() + " daily summaries");
+        return Result.success();
+    }
+}
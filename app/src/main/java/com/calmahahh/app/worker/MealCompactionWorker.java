@@ -0,0 +1,166 @@
+package com.calmahahh.app.worker;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.calmahahh.app.db.AppDatabase;
+import com.calmahahh.app.db.MealEntryDao;
+import com.calmahahh.app.util.RetentionPolicy;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps meal_entries bounded for long-time users.
+ *
+ * Entries older than the {@link RetentionPolicy} are folded into one row per
+ * date and meal with the same totals, so daily_summary and the rollups stay
+ * valid. When archiving is on, the raw rows are first written to a gzipped
+ * NDJSON file under files/archives; if that fails nothing is compacted.
+ * The database is vacuumed afterwards to give the freed pages back.
+ */
+public class MealCompactionWorker extends Worker {
+
+    private static final String TAG = "MealCompaction";
+    private static final String WORK_NAME = "meal_history_compaction";
+    public static final String ARCHIVE_DIR = "archives";
+
+    public MealCompactionWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Enqueues the compaction job to run while the device is idle and charging.
+     * Safe to call on every launch; an already scheduled job is kept.
+     */
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresDeviceIdle(true)
+                .setRequiresCharging(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                MealCompactionWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(
+                WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        RetentionPolicy policy = RetentionPolicy.load(context);
+        if (!policy.isEnabled()) return Result.success();
+
+        AppDatabase db = AppDatabase.getInstance(context);
+        MealEntryDao mealEntryDao = db.mealEntryDao();
+        LocalDate cutoff = policy.cutoff(LocalDate.now());
+
+        long maxId = mealEntryDao.getMaxRawIdBefore(cutoff);
+        if (maxId == 0) return Result.success();
+
+        if (policy.archive) {
+            try {
+                File archive = writeArchive(mealEntryDao, cutoff, maxId);
+                Log.i(TAG, "Archived raw entries to " + archive.getName());
+            } catch (IOException | JSONException e) {
+                Log.e(TAG, "Archive failed, skipping compaction", e);
+                return Result.retry();
+            }
+        }
+
+        long sizeBefore = databaseSize(context);
+        int removed = mealEntryDao.compactBefore(cutoff, maxId);
+
+        // VACUUM cannot run inside a transaction, so it goes straight to the connection
+        SupportSQLiteDatabase sqlite = db.getOpenHelper().getWritableDatabase();
+        try {
+            sqlite.execSQL("VACUUM");
+            try (Cursor c = sqlite.query("PRAGMA wal_checkpoint(TRUNCATE)")) {
+                c.moveToFirst();
+            }
+        } catch (SQLException e) {
+            // A reader held the database; the rows are already compacted, so vacuum next run
+            Log.w(TAG, "Vacuum skipped", e);
+        }
+
+        Log.i(TAG, String.format("Compacted %d entries before %s, database %d KB -> %d KB",
+                removed, cutoff, sizeBefore / 1024, databaseSize(context) / 1024));
+        return Result.success();
+    }
+
+    /** Writes the rows about to be compacted as one JSON object per line */
+    private File writeArchive(MealEntryDao mealEntryDao, LocalDate cutoff, long maxId)
+            throws IOException, JSONException {
+        File dir = new File(getApplicationContext().getFilesDir(), ARCHIVE_DIR);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        File archive = new File(dir, "meals-before-" + cutoff + "-" + System.currentTimeMillis() + ".ndjson.gz");
+        File partial = new File(dir, archive.getName() + ".part");
+
+        try (Cursor c = mealEntryDao.queryRawEntriesBefore(cutoff);
+             Writer out = new BufferedWriter(new OutputStreamWriter(
+                     new GZIPOutputStream(new FileOutputStream(partial)), StandardCharsets.UTF_8))) {
+            int id = c.getColumnIndexOrThrow("id");
+            int date = c.getColumnIndexOrThrow("date");
+            int mealType = c.getColumnIndexOrThrow("mealType");
+            int foodName = c.getColumnIndexOrThrow("foodName");
+            int calories = c.getColumnIndexOrThrow("calories");
+            int protein = c.getColumnIndexOrThrow("protein");
+            int carbs = c.getColumnIndexOrThrow("carbs");
+            int fat = c.getColumnIndexOrThrow("fat");
+            int grams = c.getColumnIndexOrThrow("grams");
+            while (c.moveToNext()) {
+                if (c.getLong(id) > maxId) continue;
+                JSONObject row = new JSONObject()
+                        .put("id", c.getLong(id))
+                        .put("date", LocalDate.ofEpochDay(c.getLong(date)).toString())
+                        .put("mealType", c.getString(mealType))
+                        .put("foodName", c.getString(foodName))
+                        .put("calories", c.getDouble(calories))
+                        .put("protein", c.getDouble(protein))
+                        .put("carbs", c.getDouble(carbs))
+                        .put("fat", c.getDouble(fat))
+                        .put("grams", c.getDouble(grams));
+                out.write(row.toString());
+                out.write('\n');
+            }
+        } catch (IOException | JSONException | RuntimeException e) {
+            partial.delete();
+            throw e;
+        }
+        if (!partial.renameTo(archive)) {
+            partial.delete();
+            throw new IOException("Cannot rename " + partial);
+        }
+        return archive;
+    }
+
+    private static long databaseSize(Context context) {
+        return context.getDatabasePath("calmahahh_database").length();
+    }
+}
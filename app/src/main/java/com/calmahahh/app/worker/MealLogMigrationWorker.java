@@ -0,0 +1,165 @@
+package com.calmahahh.app.worker;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.Xml;
+
+import androidx.annotation.NonNull;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.calmahahh.app.db.AppDatabase;
+import com.calmahahh.app.db.MealEntry;
+import com.calmahahh.app.db.MealEntryDao;
+import com.calmahahh.app.model.MealLog;
+import com.calmahahh.app.model.UserProfile;
+import com.calmahahh.app.util.CalorieStreak;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves meals from the old SharedPreferences {@link MealLog} into meal_entries,
+ * then deletes the prefs file.
+ *
+ * The prefs XML is read with a pull parser one day at a time instead of through
+ * SharedPreferences, which would load every day into memory at once. Days that
+ * already have Room entries were dual-written and are skipped. Each migrated day
+ * is inserted in its own transaction and its calorie total checked against the
+ * log; a mismatch rolls that day back and keeps the file for a later run.
+ */
+public class MealLogMigrationWorker extends Worker {
+
+    private static final String TAG = "MealLogMigration";
+    private static final String WORK_NAME = "meal_log_migration";
+
+    public MealLogMigrationWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Enqueues the migration if the old log still exists. Safe to call on every
+     * launch; once the file is gone this is a single file check.
+     */
+    public static void schedule(Context context) {
+        if (!legacyFile(context).exists()) return;
+        WorkManager.getInstance(context).enqueueUniqueWork(
+                WORK_NAME, ExistingWorkPolicy.KEEP,
+                new OneTimeWorkRequest.Builder(MealLogMigrationWorker.class).build());
+    }
+
+    private static File legacyFile(Context context) {
+        return new File(new File(context.getDataDir(), "shared_prefs"), MealLog.PREFS_NAME + ".xml");
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        File file = legacyFile(context);
+        if (!file.exists()) return Result.success();
+
+        AppDatabase db = AppDatabase.getInstance(context);
+        MealEntryDao mealEntryDao = db.mealEntryDao();
+        int target = UserProfile.load(context).getTargetCalories();
+
+        int migrated = 0, skipped = 0, failed = 0;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            XmlPullParser parser = Xml.newPullParser();
+            parser.setInput(in, "UTF-8");
+            for (int event = parser.getEventType(); event != XmlPullParser.END_DOCUMENT; event = parser.next()) {
+                if (event != XmlPullParser.START_TAG || !"string".equals(parser.getName())) continue;
+
+                LocalDate date = parseDate(parser.getAttributeValue(null, "name"));
+                MealLog.DailyLog log = MealLog.parse(parser.nextText());
+                if (date == null || log == null || log.meals == null) {
+                    skipped++;
+                } else if (mealEntryDao.hasEntriesOn(date)) {
+                    skipped++;
+                } else if (migrateDay(db, mealEntryDao, date, log, target)) {
+                    migrated++;
+                } else {
+                    failed++;
+                }
+            }
+        } catch (IOException | XmlPullParserException e) {
+            Log.e(TAG, "Could not read " + file.getName(), e);
+            return Result.failure();
+        }
+
+        if (migrated > 0) {
+            db.statsRollupDao().rebuildAll();
+            CalorieStreak.invalidate(context);
+        }
+        Log.i(TAG, String.format("Migrated %d days, skipped %d, failed %d", migrated, skipped, failed));
+        if (failed > 0) return Result.failure();
+
+        context.deleteSharedPreferences(MealLog.PREFS_NAME);
+        return Result.success();
+    }
+
+    /** Inserts one day's meals; false if the stored total does not match the log */
+    private static boolean migrateDay(AppDatabase db, MealEntryDao mealEntryDao,
+                                      LocalDate date, MealLog.DailyLog log, int target) {
+        List<MealEntry> entries = toEntries(date, log);
+        if (entries.isEmpty()) return true;
+        double expected = log.getTotalCalories();
+        try {
+            db.runInTransaction(() -> {
+                mealEntryDao.insertAllAndSummarize(entries, target);
+                double stored = mealEntryDao.getTotalCaloriesForDate(date);
+                if (Math.abs(stored - expected) > 0.01) {
+                    throw new IllegalStateException(String.format(
+                            "%s: stored %.2f kcal, log has %.2f", date, stored, expected));
+                }
+            });
+            return true;
+        } catch (IllegalStateException e) {
+            Log.w(TAG, "Rolled back day", e);
+            return false;
+        }
+    }
+
+    private static List<MealEntry> toEntries(LocalDate date, MealLog.DailyLog log) {
+        List<MealEntry> entries = new ArrayList<>();
+        for (MealLog.MealEntry meal : log.meals) {
+            if (meal == null || meal.mealName == null) continue;
+            if (meal.foods == null || meal.foods.isEmpty()) {
+                // Totals without the food list: keep the meal as a single row
+                if (meal.totalCalories != 0) {
+                    entries.add(new MealEntry(date, meal.mealName, meal.mealName,
+                            meal.totalCalories, meal.totalProtein, meal.totalCarbs, meal.totalFat, 0));
+                }
+                continue;
+            }
+            for (MealLog.FoodSnapshot food : meal.foods) {
+                entries.add(new MealEntry(date, meal.mealName,
+                        food.name != null ? food.name : meal.mealName,
+                        food.calories, food.protein, food.carbs, food.fat, food.grams));
+            }
+        }
+        return entries;
+    }
+
+    private static LocalDate parseDate(String key) {
+        if (key == null) return null;
+        try {
+            return LocalDate.parse(key);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
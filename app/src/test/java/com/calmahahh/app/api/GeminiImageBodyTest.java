@@ -0,0 +1,96 @@
+package com.calmahahh.app.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.util.Base64;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.Okio;
+
+@RunWith(RobolectricTestRunner.class)
+public class GeminiImageBodyTest {
+
+    private static final String PROMPT = "Identify the \"food\" in this image";
+
+    @Test
+    public void writesTheSameJsonAsGeminiRequest() throws IOException {
+        byte[] image = randomImage(1000);
+        // 0 to 2 leftover bytes exercise each kind of Base64 padding
+        for (int length : new int[]{0, 1, 2, 3, 998, 999, 1000}) {
+            GeminiImageBody body = GeminiImageBody.create(PROMPT, "image/jpeg", image, length);
+            Buffer written = new Buffer();
+            body.writeTo(written);
+
+            String base64 = Base64.encodeToString(image, 0, length, Base64.NO_WRAP);
+            String expected = new Gson().toJson(GeminiRequest.create(PROMPT, base64, "image/jpeg"));
+            assertEquals(JsonParser.parseString(expected), JsonParser.parseString(written.readUtf8()));
+        }
+    }
+
+    @Test
+    public void contentLengthMatchesBytesWritten() throws IOException {
+        byte[] image = randomImage(4 * 1024 * 1024);
+        for (int length : new int[]{0, 1, 2, 3, 4 * 1024 * 1024 - 1, 4 * 1024 * 1024}) {
+            GeminiImageBody body = GeminiImageBody.create(PROMPT, "image/webp", image, length);
+            assertEquals(body.contentLength(), writeCounted(body));
+        }
+    }
+
+    /**
+     * Streaming must not build the Base64 string: that alone would allocate
+     * about 2.7 times the image (4/3 chars of 2 bytes each) before escaping.
+     */
+    @Test
+    public void writeDoesNotAllocateInProportionToTheImage() throws IOException {
+        int size = 8 * 1024 * 1024;
+        byte[] image = randomImage(size);
+        GeminiImageBody body = GeminiImageBody.create(PROMPT, "image/jpeg", image, size);
+        writeCounted(body); // warm up class loading and okio's segment pool
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        long written = writeCounted(body);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertEquals(body.contentLength(), written);
+        assertTrue("allocated " + allocated + " bytes for a " + size + " byte image",
+                allocated < size / 4);
+    }
+
+    /** Writes the body to a sink that counts and discards the bytes */
+    private static long writeCounted(GeminiImageBody body) throws IOException {
+        long[] count = new long[1];
+        BufferedSink sink = Okio.buffer(new ForwardingSink(Okio.blackhole()) {
+            @Override
+            public void write(Buffer source, long byteCount) throws IOException {
+                count[0] += byteCount;
+                super.write(source, byteCount);
+            }
+        });
+        body.writeTo(sink);
+        sink.flush();
+        return count[0];
+    }
+
+    private static byte[] randomImage(int size) {
+        byte[] image = new byte[size];
+        new Random(42).nextBytes(image);
+        return image;
+    }
+}
@@ -0,0 +1,256 @@
+package com.calmahahh.app.backup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.calmahahh.app.db.AppDatabase;
+import com.calmahahh.app.db.MealEntry;
+import com.calmahahh.app.db.Plan;
+import com.calmahahh.app.db.PlanTask;
+import com.calmahahh.app.db.TaskCompletion;
+import com.calmahahh.app.db.WorkoutHistory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class DatabaseBackupTest {
+
+    /** Enough meals for two binary blocks of meal_entries */
+    private static final int MEALS = BinaryBackupFormat.BLOCK_ROWS + 1000;
+    /** Reals round to the nearest 1 / FIXED_SCALE in the binary format */
+    private static final double FIXED_TOLERANCE = 0.5 / BinaryBackupFormat.FIXED_SCALE;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+
+    private Context context;
+    private AppDatabase db;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        db = AppDatabase.getInstance(context);
+    }
+
+    @After
+    public void tearDown() {
+        AppDatabase.destroyInstance();
+    }
+
+    @Test
+    public void restoresVersion10PerDayTasks() throws Exception {
+        offMainThread(() -> {
+            restoreVersion10PerDayTasks();
+            return null;
+        });
+    }
+
+    @Test
+    public void binaryBackupRoundTrips() throws Exception {
+        offMainThread(() -> {
+            populate();
+            Map<String, List<Object[]>> before = snapshot();
+
+            byte[] binary = exportBinary();
+            ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+            DatabaseBackup.exportNdjson(context, ndjson);
+            System.out.printf("Backup of %d meals: binary %d bytes, NDJSON %d bytes%n",
+                    MEALS, binary.length, ndjson.size());
+            assertTrue("binary backup is not much smaller than NDJSON", binary.length * 3 < ndjson.size());
+
+            db.mealEntryDao().insertAndSummarize(
+                    new MealEntry(FIRST_DAY, "Snack", "Not in the backup", 100, 1, 1, 1, 10), 2000);
+            DatabaseBackup.restore(context, new ByteArrayInputStream(binary));
+            assertSameRows(before, snapshot());
+            return null;
+        });
+    }
+
+    @Test
+    public void corruptedBinaryBlockIsRejected() throws Exception {
+        offMainThread(() -> {
+            populate();
+            Map<String, List<Object[]>> before = snapshot();
+            byte[] binary = exportBinary();
+
+            // The last payload byte of meal_entries: it is followed by the block
+            // CRC, TABLE_END, then TABLE and the length-prefixed next table name
+            int next = indexOf(binary, "daily_summary".getBytes(StandardCharsets.UTF_8));
+            binary[next - 8] ^= 1;
+
+            IOException e = assertThrows(IOException.class,
+                    () -> DatabaseBackup.restore(context, new ByteArrayInputStream(binary)));
+            assertEquals("Block 1 of meal_entries is corrupted", e.getMessage());
+            assertSameRows(before, snapshot());
+            return null;
+        });
+    }
+
+    private void restoreVersion10PerDayTasks() throws IOException {
+        long monday = LocalDate.of(2024, 3, 4).toEpochDay();
+        String backup = String.join("\n",
+                "{\"format\":\"calmahahh-ndjson\",\"version\":10}",
+                "{\"table\":\"plans\",\"columns\":[\"id\",\"name\",\"type\",\"createdAt\",\"updatedAt\"]}",
+                "[1,\"Strength\",\"workout\",0,0]",
+                "{\"table\":\"plan_tasks\",\"columns\":[\"id\",\"planId\",\"dayOfWeek\",\"taskName\",\"category\"," +
+                        "\"sets\",\"reps\",\"intensity\",\"startTime\",\"durationMinutes\",\"notes\",\"completed\"," +
+                        "\"reminderEnabled\",\"completedAt\",\"orderIndex\"]}",
+                "[3,1,\"Monday\",\"Squat\",\"Workout\",5,5,\"100kg\",\"07:00\",45,\"\",0,1,0,2]",
+                "[4,1,\"Wednesday\",\"Squat\",\"Workout\",5,5,\"100kg\",\"07:00\",45,\"\",0,1,0,1]",
+                "[5,1,\"Friday\",\"Squat\",\"Workout\",5,5,\"100kg\",\"07:00\",45,\"\",0,1,0,3]",
+                "[6,1,\"Monday\",\"Stretch\",\"Workout\",0,0,\"\",\"07:45\",10,\"\",0,0,0,4]",
+                "{\"table\":\"task_completions\",\"columns\":[\"id\",\"taskId\",\"date\",\"completed\",\"completedAt\"]}",
+                "[1,3," + monday + ",1,0]",
+                "[2,4," + (monday + 2) + ",1,0]",
+                "[3,6," + monday + ",1,0]",
+                "");
+
+        DatabaseBackup.restore(context, new ByteArrayInputStream(backup.getBytes(StandardCharsets.UTF_8)));
+
+        List<PlanTask> tasks = db.planTaskDao().getTasksForPlan(1);
+        assertEquals(2, tasks.size());
+        PlanTask squat = findTask(tasks, "Squat");
+        assertEquals(3, squat.getId());
+        assertEquals(PlanTask.dayBit(DayOfWeek.MONDAY) | PlanTask.dayBit(DayOfWeek.WEDNESDAY)
+                | PlanTask.dayBit(DayOfWeek.FRIDAY), squat.getDaysMask());
+        assertEquals(1, squat.getOrderIndex());
+        assertTrue(squat.isReminderEnabled());
+        assertEquals(PlanTask.dayBit(DayOfWeek.MONDAY), findTask(tasks, "Stretch").getDaysMask());
+
+        // The Wednesday copy's completion follows it into the merged task
+        List<TaskCompletion> squatDone = db.taskCompletionDao().getCompletionsForTask(3);
+        assertEquals(2, squatDone.size());
+        for (TaskCompletion completion : squatDone) assertEquals(1, completion.getPlanId());
+    }
+
+    /** A plan with tasks, completions and workouts, and a year of meals with fractional macros */
+    private void populate() {
+        long planId = db.planDao().insert(new Plan("Strength", "workout"));
+        long squat = db.planTaskDao().insert(new PlanTask(planId,
+                PlanTask.dayBit(DayOfWeek.MONDAY) | PlanTask.dayBit(DayOfWeek.THURSDAY), "Squat", "Workout"));
+        long stretch = db.planTaskDao().insert(new PlanTask(planId,
+                PlanTask.dayBit(DayOfWeek.TUESDAY), "Stretch", "Other"));
+        for (int week = 0; week < 20; week++) {
+            LocalDate monday = FIRST_DAY.plusWeeks(week);
+            db.taskCompletionDao().insert(new TaskCompletion(squat, planId, monday, true));
+            db.taskCompletionDao().insert(new TaskCompletion(stretch, planId, monday.plusDays(1), week % 3 != 0));
+            db.workoutHistoryDao().insert(new WorkoutHistory(squat, monday, "Squat", 60 + week * 2.5, 5, 5));
+        }
+
+        Random random = new Random(42);
+        String[] meals = {"Breakfast", "Lunch", "Dinner", "Snack"};
+        List<MealEntry> entries = new ArrayList<>();
+        for (int i = 0; i < MEALS; i++) {
+            entries.add(new MealEntry(FIRST_DAY.plusDays(i * 365L / MEALS), meals[i % meals.length],
+                    "Food " + random.nextInt(60), random.nextDouble() * 900, random.nextDouble() * 60,
+                    random.nextDouble() * 120, random.nextDouble() * 40, random.nextDouble() * 400));
+        }
+        db.mealEntryDao().insertAllAndSummarize(entries, 2000);
+    }
+
+    private byte[] exportBinary() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DatabaseBackup.exportBinary(context, out);
+        return out.toByteArray();
+    }
+
+    /** Every backed-up table, in key order */
+    private Map<String, List<Object[]>> snapshot() {
+        Map<String, List<Object[]>> tables = new HashMap<>();
+        for (String table : DatabaseBackup.TABLES) {
+            List<Object[]> rows = new ArrayList<>();
+            try (Cursor c = db.getOpenHelper().getReadableDatabase()
+                    .query("SELECT * FROM `" + table + "` ORDER BY 1")) {
+                while (c.moveToNext()) {
+                    Object[] row = new Object[c.getColumnCount()];
+                    for (int i = 0; i < row.length; i++) {
+                        switch (c.getType(i)) {
+                            case Cursor.FIELD_TYPE_INTEGER: row[i] = c.getLong(i); break;
+                            case Cursor.FIELD_TYPE_FLOAT: row[i] = c.getDouble(i); break;
+                            case Cursor.FIELD_TYPE_STRING: row[i] = c.getString(i); break;
+                            default: row[i] = null; break;
+                        }
+                    }
+                    rows.add(row);
+                }
+            }
+            assertFalse("nothing to back up in " + table, rows.isEmpty());
+            tables.put(table, rows);
+        }
+        return tables;
+    }
+
+    private static void assertSameRows(Map<String, List<Object[]>> expected, Map<String, List<Object[]>> actual) {
+        for (String table : DatabaseBackup.TABLES) {
+            List<Object[]> want = expected.get(table);
+            List<Object[]> got = actual.get(table);
+            assertEquals(table + " row count", want.size(), got.size());
+            for (int r = 0; r < want.size(); r++) {
+                for (int i = 0; i < want.get(r).length; i++) {
+                    Object w = want.get(r)[i];
+                    Object g = got.get(r)[i];
+                    String where = table + " row " + r + " column " + i;
+                    if (w instanceof Double) {
+                        assertEquals(where, (Double) w, ((Number) g).doubleValue(), FIXED_TOLERANCE);
+                    } else {
+                        assertEquals(where, w, g);
+                    }
+                }
+            }
+        }
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i + needle.length <= haystack.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) continue outer;
+            }
+            return i;
+        }
+        throw new AssertionError("not found");
+    }
+
+    /** Room refuses queries on the main thread, which is the test thread under Robolectric */
+    private static void offMainThread(Callable<?> test) throws Exception {
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        try {
+            worker.submit(test).get();
+        } finally {
+            worker.shutdown();
+        }
+    }
+
+    private static PlanTask findTask(List<PlanTask> tasks, String name) {
+        for (PlanTask task : tasks) {
+            if (name.equals(task.getTaskName())) return task;
+        }
+        throw new AssertionError("No task " + name);
+    }
+}
@@ -0,0 +1,248 @@
+package com.calmahahh.app.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meal writes and screen reads through the shared executors on the WAL
+ * database, against the setup they replaced: one single-thread executor per
+ * screen on a rollback-journal database. The main check is that a read does
+ * not wait behind an open meal write transaction.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class DbExecutorConcurrencyTest {
+
+    private static final int SCREENS = 4;
+    private static final int WRITES = 200;
+    private static final int READS = 800;
+    private static final int TARGET = 2000;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+    private static final int DAYS = 10;
+    /** How long a meal write keeps its transaction open while a read runs */
+    private static final long HOLD_MS = 2000;
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+    }
+
+    @After
+    public void tearDown() {
+        AppDatabase.destroyInstance();
+    }
+
+    @Test
+    public void sharedExecutorsRunConcurrentReadsAndWrites() throws Exception {
+        AppDatabase db = AppDatabase.getInstance(context);
+        long nanos = runLoad(db, AppDatabase.readExecutor(), AppDatabase.writeExecutor());
+        offMainThread(() -> assertConsistent(db));
+        System.out.printf("Shared executors, WAL: %d writes + %d reads in %.1f ms%n",
+                WRITES, READS, nanos / 1e6);
+        System.out.println(AppDatabase.readExecutor().getStats());
+        System.out.println(AppDatabase.writeExecutor().getStats());
+        assertEquals(0, AppDatabase.readExecutor().getQueueDepth());
+        assertEquals(0, AppDatabase.writeExecutor().getQueueDepth());
+    }
+
+    /**
+     * A read submitted while a meal insert holds its write transaction open
+     * finishes before the transaction commits, and sees the data as of before
+     * the insert.
+     */
+    @Test
+    public void readDoesNotWaitForAnOpenMealCommit() throws Exception {
+        AppDatabase db = AppDatabase.getInstance(context);
+        BlockedRead read = readDuringOpenWrite(db, AppDatabase.writeExecutor(), AppDatabase.readExecutor());
+        System.out.printf("Shared executors, WAL: read during an open meal write took %.2f ms%n",
+                read.latencyNanos / 1e6);
+        assertTrue("read waited for the write transaction", read.finishedWhileOpen);
+        assertEquals(0, read.rowsSeen);
+    }
+
+    /** The same scenario on the old setup, printed for comparison */
+    @Test
+    public void readDuringOpenMealCommitOnRollbackJournalForComparison() throws Exception {
+        AppDatabase db = Room.databaseBuilder(context, AppDatabase.class, "rollback_journal.db")
+                .setJournalMode(RoomDatabase.JournalMode.TRUNCATE)
+                .build();
+        ExecutorService writingScreen = Executors.newSingleThreadExecutor();
+        ExecutorService readingScreen = Executors.newSingleThreadExecutor();
+        try {
+            BlockedRead read = readDuringOpenWrite(db, writingScreen, readingScreen);
+            System.out.printf("Per-screen executors, rollback journal: read during an open meal write " +
+                    "took %.2f ms (%s)%n", read.latencyNanos / 1e6,
+                    read.finishedWhileOpen ? "did not wait" : "waited for the commit");
+        } finally {
+            writingScreen.shutdown();
+            readingScreen.shutdown();
+            db.close();
+        }
+    }
+
+    @Test
+    public void perScreenExecutorsOnRollbackJournalForComparison() throws Exception {
+        AppDatabase db = Room.databaseBuilder(context, AppDatabase.class, "per_screen_executors.db")
+                .setJournalMode(RoomDatabase.JournalMode.TRUNCATE)
+                .build();
+        List<ExecutorService> screens = new ArrayList<>();
+        for (int i = 0; i < SCREENS; i++) screens.add(Executors.newSingleThreadExecutor());
+        try {
+            // Each screen did both its reads and its writes on its own thread
+            long nanos = runLoad(db, roundRobin(screens), roundRobin(screens));
+            offMainThread(() -> assertConsistent(db));
+            System.out.printf("Per-screen executors, rollback journal: %d writes + %d reads in %.1f ms%n",
+                    WRITES, READS, nanos / 1e6);
+        } finally {
+            for (ExecutorService screen : screens) screen.shutdown();
+            db.close();
+        }
+    }
+
+    /** Outcome of a read run while another thread holds a write transaction */
+    private static final class BlockedRead {
+        boolean finishedWhileOpen;
+        long latencyNanos;
+        int rowsSeen;
+    }
+
+    /**
+     * Opens a write transaction on {@code writes} that inserts a meal and then
+     * waits on a latch, runs a read on {@code reads}, and gives the read
+     * {@link #HOLD_MS} to finish before letting the transaction commit.
+     */
+    private static BlockedRead readDuringOpenWrite(AppDatabase db, Executor writes, Executor reads)
+            throws Exception {
+        CountDownLatch inTransaction = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch committed = new CountDownLatch(1);
+        writes.execute(() -> {
+            try {
+                db.runInTransaction(() -> {
+                    db.mealEntryDao().insertAndSummarize(
+                            new MealEntry(FIRST_DAY, "Dinner", "Pasta", 600, 20, 80, 15, 300), TARGET);
+                    inTransaction.countDown();
+                    awaitUninterruptibly(release);
+                });
+            } finally {
+                committed.countDown();
+            }
+        });
+        assertTrue("write transaction did not start", inTransaction.await(10, TimeUnit.SECONDS));
+
+        BlockedRead result = new BlockedRead();
+        CountDownLatch readDone = new CountDownLatch(1);
+        long start = System.nanoTime();
+        reads.execute(() -> {
+            result.rowsSeen = db.mealEntryDao().getEntryCount();
+            result.latencyNanos = System.nanoTime() - start;
+            readDone.countDown();
+        });
+        try {
+            result.finishedWhileOpen = readDone.await(HOLD_MS, TimeUnit.MILLISECONDS);
+        } finally {
+            release.countDown();
+        }
+        assertTrue("read did not finish", readDone.await(10, TimeUnit.SECONDS));
+        assertTrue("write did not commit", committed.await(10, TimeUnit.SECONDS));
+        return result;
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Submits the writes and reads interleaved and waits for all of them */
+    private static long runLoad(AppDatabase db, Executor reads, Executor writes) throws Exception {
+        MealEntryDao meals = db.mealEntryDao();
+        DailySummaryDao summaries = db.dailySummaryDao();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch done = new CountDownLatch(WRITES + READS);
+
+        long start = System.nanoTime();
+        int readsPerWrite = READS / WRITES;
+        for (int i = 0; i < WRITES; i++) {
+            LocalDate date = FIRST_DAY.plusDays(i % DAYS);
+            writes.execute(guarded(failures, done, () -> meals.insertAndSummarize(
+                    new MealEntry(date, "Lunch", "Rice " + date, 100, 2, 20, 1, 80), TARGET)));
+            for (int r = 0; r < readsPerWrite; r++) {
+                reads.execute(guarded(failures, done, () -> {
+                    meals.getEntriesForDate(date);
+                    summaries.getForDate(date);
+                    meals.getHistoryFirstPage(50);
+                }));
+            }
+        }
+        assertTrue("load did not finish", done.await(60, TimeUnit.SECONDS));
+        long nanos = System.nanoTime() - start;
+        if (!failures.isEmpty()) throw new AssertionError("task failed", failures.peek());
+        return nanos;
+    }
+
+    private static Runnable guarded(Queue<Throwable> failures, CountDownLatch done, Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                failures.add(t);
+            } finally {
+                done.countDown();
+            }
+        };
+    }
+
+    private static Executor roundRobin(List<ExecutorService> executors) {
+        int[] next = new int[1];
+        return task -> executors.get(next[0]++ % executors.size()).execute(task);
+    }
+
+    /** Room refuses queries on the main thread, which is the test thread under Robolectric */
+    private static void offMainThread(Runnable check) throws Exception {
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        try {
+            worker.submit(check).get();
+        } finally {
+            worker.shutdown();
+        }
+    }
+
+    /** Every write landed and each day's summary matches its entries */
+    private static void assertConsistent(AppDatabase db) {
+        assertEquals(WRITES, db.mealEntryDao().getEntryCount());
+        for (int d = 0; d < DAYS; d++) {
+            LocalDate date = FIRST_DAY.plusDays(d);
+            DailySummary summary = db.dailySummaryDao().getForDate(date);
+            assertEquals(db.mealEntryDao().getTotalCaloriesForDate(date), summary.totalCalories, 0.001);
+        }
+    }
+}
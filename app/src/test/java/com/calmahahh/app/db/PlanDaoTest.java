@@ -0,0 +1,189 @@
+package com.calmahahh.app.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.List;
+import java.util.Locale;
+
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class PlanDaoTest {
+
+    private static final int TASKS = 50;
+    private static final int BENCHMARK_TASKS = 500;
+    private static final int BENCHMARK_RUNS = 5;
+
+    private AppDatabase db;
+    private PlanDao planDao;
+    private PlanTaskDao taskDao;
+
+    @Before
+    public void setUp() {
+        db = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        planDao = db.planDao();
+        taskDao = db.planTaskDao();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void duplicatePlanCopiesEveryTask() {
+        long sourceId = planDao.insert(new Plan("Strength", "workout"));
+        for (int i = 0; i < TASKS; i++) taskDao.insert(task(sourceId, i));
+
+        long copyId = planDao.duplicatePlan(sourceId, "Strength (copy)");
+
+        assertNotEquals(sourceId, copyId);
+        Plan copy = planDao.getPlanById(copyId);
+        assertEquals("Strength (copy)", copy.getName());
+        assertEquals("workout", copy.getType());
+
+        List<PlanTask> sources = taskDao.getTasksForPlan(sourceId);
+        List<PlanTask> copies = taskDao.getTasksForPlan(copyId);
+        assertEquals(TASKS, sources.size());
+        assertEquals(TASKS, copies.size());
+        for (int i = 0; i < TASKS; i++) {
+            PlanTask source = sources.get(i);
+            PlanTask copied = copies.get(i);
+            assertNotEquals(source.getId(), copied.getId());
+            assertEquals(copyId, copied.getPlanId());
+            assertEquals(source.getDaysMask(), copied.getDaysMask());
+            assertEquals(source.getTaskName(), copied.getTaskName());
+            assertEquals(source.getCategory(), copied.getCategory());
+            assertEquals(source.getSets(), copied.getSets());
+            assertEquals(source.getReps(), copied.getReps());
+            assertEquals(source.getIntensity(), copied.getIntensity());
+            assertEquals(source.getStartTime(), copied.getStartTime());
+            assertEquals(source.getDurationMinutes(), copied.getDurationMinutes());
+            assertEquals(source.getNotes(), copied.getNotes());
+            assertEquals(source.isReminderEnabled(), copied.isReminderEnabled());
+            assertEquals(source.getOrderIndex(), copied.getOrderIndex());
+        }
+    }
+
+    @Test
+    public void duplicateOfMissingPlanReturnsMinusOne() {
+        assertEquals(-1, planDao.duplicatePlan(42, "Nothing"));
+        assertEquals(0, planDao.getPlanCount());
+    }
+
+    @Test
+    public void failedTaskCopyRollsBackThePlanRow() {
+        long sourceId = planDao.insert(new Plan("Chores", "chores"));
+        for (int i = 0; i < TASKS; i++) taskDao.insert(task(sourceId, i));
+        // Fails the copy on the last task, after the new plan row and most tasks are written
+        db.getOpenHelper().getWritableDatabase().execSQL("CREATE TRIGGER fail_copy BEFORE INSERT ON plan_tasks " +
+                "WHEN NEW.planId != " + sourceId + " AND NEW.orderIndex = " + (TASKS - 1) + " " +
+                "BEGIN SELECT RAISE(ABORT, 'copy failed'); END");
+
+        try {
+            planDao.duplicatePlan(sourceId, "Chores (copy)");
+            fail("copy should have failed");
+        } catch (RuntimeException expected) {
+            assertTrue(String.valueOf(expected.getMessage()).contains("copy failed"));
+        }
+
+        // One transaction: neither the plan row nor any copied task survives
+        assertEquals(1, planDao.getPlanCount());
+        try (Cursor c = db.query("SELECT COUNT(*) FROM plan_tasks", null)) {
+            c.moveToFirst();
+            assertEquals(TASKS, c.getInt(0));
+        }
+    }
+
+    /**
+     * duplicatePlan against the per-row copy it replaced (load the tasks, then
+     * one autocommitted insert each), on a file database so commits cost what
+     * they do on a device. Timings are printed for comparison across changes;
+     * only the copied row counts are asserted.
+     */
+    @Test
+    public void benchmarkDuplicateAgainstPerRowCopy() {
+        AppDatabase fileDb = Room.databaseBuilder(ApplicationProvider.getApplicationContext(),
+                        AppDatabase.class, "plan_benchmark.db")
+                .allowMainThreadQueries()
+                .build();
+        try {
+            PlanDao plans = fileDb.planDao();
+            PlanTaskDao tasks = fileDb.planTaskDao();
+            long sourceId = plans.insert(new Plan("Marathon block", "workout"));
+            for (int i = 0; i < BENCHMARK_TASKS; i++) tasks.insert(task(sourceId, i));
+
+            // Warm up both paths before timing
+            perRowCopy(plans, tasks, sourceId);
+            plans.duplicatePlan(sourceId, "warm-up");
+
+            long perRowNanos = 0;
+            long duplicateNanos = 0;
+            for (int run = 0; run < BENCHMARK_RUNS; run++) {
+                long start = System.nanoTime();
+                long perRowId = perRowCopy(plans, tasks, sourceId);
+                perRowNanos += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                long duplicateId = plans.duplicatePlan(sourceId, "copy " + run);
+                duplicateNanos += System.nanoTime() - start;
+
+                assertEquals(BENCHMARK_TASKS, tasks.getTasksForPlan(perRowId).size());
+                assertEquals(BENCHMARK_TASKS, tasks.getTasksForPlan(duplicateId).size());
+            }
+
+            System.out.printf("Duplicate a plan of %d tasks: per-row copy %.1f ms, duplicatePlan %.1f ms%n",
+                    BENCHMARK_TASKS, perRowNanos / 1e6 / BENCHMARK_RUNS, duplicateNanos / 1e6 / BENCHMARK_RUNS);
+        } finally {
+            fileDb.close();
+        }
+    }
+
+    /** The copy PlannerActivity did before duplicatePlan, one insert per task */
+    private static long perRowCopy(PlanDao plans, PlanTaskDao tasks, long sourceId) {
+        Plan source = plans.getPlanById(sourceId);
+        long newPlanId = plans.insert(new Plan(source.getName() + " (Copy)", source.getType()));
+        for (PlanTask task : tasks.getTasksForPlan(sourceId)) {
+            PlanTask copy = new PlanTask(newPlanId, task.getDaysMask(), task.getTaskName(), task.getCategory());
+            copy.setSets(task.getSets());
+            copy.setReps(task.getReps());
+            copy.setIntensity(task.getIntensity());
+            copy.setStartTime(task.getStartTime());
+            copy.setDurationMinutes(task.getDurationMinutes());
+            copy.setNotes(task.getNotes());
+            copy.setReminderEnabled(task.isReminderEnabled());
+            copy.setOrderIndex(task.getOrderIndex());
+            tasks.insert(copy);
+        }
+        return newPlanId;
+    }
+
+    private static PlanTask task(long planId, int index) {
+        PlanTask task = new PlanTask(planId, 1 << (index % 7), "Task " + index, "Workout");
+        task.setSets(index % 5);
+        task.setReps(10 + index);
+        task.setIntensity(index + " kg");
+        task.setStartTime(String.format(Locale.US, "%02d:%02d", 6 + index % 12, index % 60));
+        task.setDurationMinutes(15 + index);
+        task.setNotes(index % 2 == 0 ? "" : "note " + index);
+        task.setReminderEnabled(index % 3 == 0);
+        task.setOrderIndex(index);
+        return task;
+    }
+}
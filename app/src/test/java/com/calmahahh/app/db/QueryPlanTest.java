@@ -0,0 +1,258 @@
+package com.calmahahh.app.db;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Checks that the DAO queries are served by their indexes. Every @Query in
+ * the DAOs below is planned and must not scan a table unless it is on the
+ * allow-list; the hand-written checks pin the specific index for the hot
+ * paths. The SQL in those is copied from the DAOs with the parameters as '?';
+ * keep the two in step.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class QueryPlanTest {
+
+    /**
+     * @Query has class retention, so the SQL is read from the DAO sources
+     * rather than by reflection. Unit tests run from the module directory.
+     */
+    private static final String DAO_SOURCES = "src/main/java/com/calmahahh/app/db";
+    private static final List<String> DAOS =
+            Arrays.asList("MealEntryDao", "PlanTaskDao", "TaskCompletionDao", "WorkoutHistoryDao");
+
+    private static final Pattern LITERAL = Pattern.compile("\"((?:[^\"\\\\]|\\\\.)*)\"");
+    private static final Pattern METHOD_NAME = Pattern.compile("(\\w+)\\s*\\(");
+    private static final Pattern PARAMETER = Pattern.compile(":\\w+");
+
+    /** Queries that scan a table on purpose, by Dao.method, with the reason */
+    private static final Map<String, String> INTENTIONAL_SCANS = new LinkedHashMap<>();
+
+    static {
+        // Whole-history reads. They want every row, and walk a covering or
+        // already-ordered index rather than the table.
+        INTENTIONAL_SCANS.put("MealEntryDao.getAllDatesWithEntries", "every logged date, covering index");
+        INTENTIONAL_SCANS.put("MealEntryDao.getEntryCount", "count of all entries, covering index");
+        INTENTIONAL_SCANS.put("TaskCompletionDao.getAllCompleted", "every completion, in date index order");
+        INTENTIONAL_SCANS.put("TaskCompletionDao.getCompletedDates", "every completed date, in date index order");
+        INTENTIONAL_SCANS.put("TaskCompletionDao.getCompletedCountsByDate",
+                "rebuilds the completion-day index from all completions");
+        INTENTIONAL_SCANS.put("TaskCompletionDao.getTotalCompleted", "all-time total on the stats screen");
+        INTENTIONAL_SCANS.put("WorkoutHistoryDao.getAllExerciseNames", "every exercise name, covering index");
+
+        // The first history page walks the (date, id) index from the newest
+        // end and stops at the LIMIT; a jump to an offset walks it that far.
+        INTENTIONAL_SCANS.put("MealEntryDao.getHistoryFirstPage", "stops after one page");
+        INTENTIONAL_SCANS.put("MealEntryDao.getHistoryPageAt", "covering index walk to the offset");
+
+        // Runs once per compaction and reads every raw entry by design.
+        INTENTIONAL_SCANS.put("MealEntryDao.rebuildFoodNames", "rebuilds food_names in one pass");
+
+        // A bit test on daysMask can't use an index. plan_tasks holds one row
+        // per task, not per day, so it stays small.
+        INTENTIONAL_SCANS.put("PlanTaskDao.getTasksForDay", "daysMask filter");
+        INTENTIONAL_SCANS.put("PlanTaskDao.getTasksWithPlanNameForDay", "daysMask filter");
+        INTENTIONAL_SCANS.put("PlanTaskDao.getTaskCountForDay", "daysMask filter");
+    }
+
+    private AppDatabase db;
+    private SupportSQLiteDatabase sqlite;
+
+    @Before
+    public void setUp() {
+        db = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        sqlite = db.getOpenHelper().getWritableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void daoQueriesDoNotScanTables() throws IOException {
+        Map<String, String> queries = new LinkedHashMap<>();
+        for (String dao : DAOS) queries.putAll(readQueries(dao));
+        for (String allowed : INTENTIONAL_SCANS.keySet()) {
+            assertTrue("allow-listed query no longer exists: " + allowed, queries.containsKey(allowed));
+        }
+
+        List<String> scans = new ArrayList<>();
+        for (Map.Entry<String, String> query : queries.entrySet()) {
+            if (INTENTIONAL_SCANS.containsKey(query.getKey())) continue;
+            String sql = PARAMETER.matcher(query.getValue()).replaceAll("?");
+            Object[] args = new Object[sql.length() - sql.replace("?", "").length()];
+            Arrays.fill(args, 1L);
+            String plan = plan(sql, args);
+            for (String line : plan.split("\n")) {
+                if (scansTable(line)) scans.add(query.getKey() + ": " + line);
+            }
+        }
+        if (!scans.isEmpty()) fail("Table scans:\n" + String.join("\n", scans));
+    }
+
+    @Test
+    public void mealLookupsUseDateIndex() {
+        assertUsesIndex("SELECT * FROM meal_entries WHERE date = ? AND mealType = ? ORDER BY id",
+                "index_meal_entries_date_mealType", 19000, "Lunch");
+        assertUsesIndex("SELECT * FROM meal_entries WHERE date = ? ORDER BY mealType, id",
+                "index_meal_entries_date_", 19000);
+        assertUsesIndex("SELECT date, COALESCE(SUM(calories), 0) as totalCalories FROM meal_entries " +
+                "WHERE date BETWEEN ? AND ? GROUP BY date", "index_meal_entries_date_", 19000, 19030);
+    }
+
+    @Test
+    public void historyPagesSeekTheKeysetIndex() {
+        String first = "SELECT * FROM meal_entries ORDER BY date DESC, id DESC LIMIT ?";
+        assertUsesIndex(first, "index_meal_entries_date_id", 50);
+        assertNoSort(first, 50);
+
+        String after = "SELECT * FROM meal_entries WHERE (date, id) < (?, ?) " +
+                "ORDER BY date DESC, id DESC LIMIT ?";
+        assertSearches(after, "index_meal_entries_date_id", 19000, 10, 50);
+        assertNoSort(after, 19000, 10, 50);
+
+        String before = "SELECT * FROM meal_entries WHERE (date, id) > (?, ?) " +
+                "ORDER BY date ASC, id ASC LIMIT ?";
+        assertSearches(before, "index_meal_entries_date_id", 19000, 10, 50);
+        assertNoSort(before, 19000, 10, 50);
+
+        String at = "SELECT * FROM meal_entries WHERE (date, id) <= " +
+                "(SELECT date, id FROM meal_entries ORDER BY date DESC, id DESC LIMIT 1 OFFSET ?) " +
+                "ORDER BY date DESC, id DESC LIMIT ?";
+        assertSearches(at, "index_meal_entries_date_id", 500, 50);
+        assertTrue(plan(at, 500, 50).contains("COVERING INDEX index_meal_entries_date_id"));
+        assertNoSort(at, 500, 50);
+    }
+
+    @Test
+    public void foodSearchMatchesDistinctNames() {
+        String plan = plan("SELECT m.* FROM food_names_fts " +
+                "INNER JOIN food_names n ON n.id = food_names_fts.rowid " +
+                "INNER JOIN meal_entries m ON m.id = n.latestId " +
+                "WHERE food_names_fts MATCH ? ORDER BY m.date DESC, m.id DESC LIMIT ?", "ch*", 10);
+        assertTrue(plan, plan.contains("food_names_fts VIRTUAL TABLE"));
+        assertFalse(plan, plan.contains("SCAN n"));
+        assertFalse(plan, plan.contains("SCAN m"));
+    }
+
+    @Test
+    public void taskAndWorkoutLookupsUseIndexes() {
+        assertUsesIndex("SELECT * FROM plan_tasks WHERE reminderEnabled = 1",
+                "index_plan_tasks_reminderEnabled");
+        assertUsesIndex("SELECT * FROM plan_tasks WHERE planId = ? ORDER BY orderIndex, startTime",
+                "index_plan_tasks_planId", 1);
+        assertUsesIndex("SELECT taskId FROM task_completions WHERE date = ? AND completed = 1",
+                "index_task_completions_date", 19000);
+        assertUsesIndex("SELECT * FROM workout_history WHERE exerciseName = ? AND date BETWEEN ? AND ? " +
+                "ORDER BY date", "index_workout_history_exerciseName_date", "Squat", 19000, 19030);
+    }
+
+    private String plan(String sql, Object... args) {
+        StringBuilder plan = new StringBuilder();
+        try (Cursor c = sqlite.query("EXPLAIN QUERY PLAN " + sql, args)) {
+            int detail = c.getColumnIndexOrThrow("detail");
+            while (c.moveToNext()) plan.append(c.getString(detail)).append('\n');
+        }
+        return plan.toString();
+    }
+
+    /**
+     * A full pass over a table or index. Constant rows, subquery results and
+     * FTS lookups also plan as SCAN but don't read a table.
+     */
+    private static boolean scansTable(String line) {
+        return line.startsWith("SCAN ")
+                && !line.startsWith("SCAN CONSTANT ROW")
+                && !line.startsWith("SCAN (")
+                && !line.contains("VIRTUAL TABLE");
+    }
+
+    /** The SQL of each @Query in a DAO source file, by Dao.method */
+    private static Map<String, String> readQueries(String dao) throws IOException {
+        String source = new String(Files.readAllBytes(Paths.get(DAO_SOURCES, dao + ".java")),
+                StandardCharsets.UTF_8);
+        Map<String, String> queries = new LinkedHashMap<>();
+        int at = source.indexOf("@Query(");
+        while (at >= 0) {
+            int end = closingParen(source, at + "@Query".length());
+            StringBuilder sql = new StringBuilder();
+            Matcher literal = LITERAL.matcher(source.substring(at, end));
+            while (literal.find()) sql.append(literal.group(1));
+            Matcher method = METHOD_NAME.matcher(source);
+            assertTrue("no method after @Query in " + dao, method.find(end + 1));
+            String key = dao + "." + method.group(1);
+            assertTrue("@Query without string literals: " + key, sql.length() > 0);
+            assertTrue("overloaded query method: " + key, queries.put(key, sql.toString()) == null);
+            at = source.indexOf("@Query(", end);
+        }
+        assertFalse("no @Query found in " + dao, queries.isEmpty());
+        return queries;
+    }
+
+    /** Index of the ')' matching the '(' at {@code open}, skipping string literals */
+    private static int closingParen(String source, int open) {
+        int depth = 0;
+        boolean inString = false;
+        for (int i = open; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (inString) {
+                if (c == '\\') i++;
+                else if (c == '"') inString = false;
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i;
+            }
+        }
+        throw new AssertionError("unbalanced @Query at " + open);
+    }
+
+    private void assertUsesIndex(String sql, String index, Object... args) {
+        String plan = plan(sql, args);
+        assertTrue(plan, plan.contains("USING INDEX " + index) || plan.contains("USING COVERING INDEX " + index));
+    }
+
+    /** A seek into the index rather than a scan along it */
+    private void assertSearches(String sql, String index, Object... args) {
+        String plan = plan(sql, args);
+        assertTrue(plan, plan.startsWith("SEARCH meal_entries USING INDEX " + index)
+                || plan.startsWith("SEARCH meal_entries USING COVERING INDEX " + index));
+    }
+
+    private void assertNoSort(String sql, Object... args) {
+        String plan = plan(sql, args);
+        assertFalse(plan, plan.contains("TEMP B-TREE"));
+    }
+}
@@ -0,0 +1,143 @@
+package com.calmahahh.app.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/** Plain JVM test; BkTree has no Android dependencies. */
+public class BkTreeTest {
+
+    private static final int HASHES = 10_000;
+    private static final int QUERIES = 2_000;
+    private static final int RADIUS = 6;
+
+    @Test
+    public void nearestMatchesLinearScan() {
+        Random random = new Random(1);
+        long[] stored = randomHashes(random, HASHES);
+        BkTree tree = new BkTree();
+        for (long hash : stored) tree.add(hash);
+        assertEquals(HASHES, tree.size());
+
+        for (int i = 0; i < QUERIES; i++) {
+            long query = nearby(random, stored[random.nextInt(stored.length)]);
+            BkTree.Match match = tree.nearest(query, RADIUS);
+            int expected = linearNearest(stored, query, RADIUS);
+            if (expected > RADIUS) {
+                assertNull(match);
+            } else {
+                assertEquals(expected, match.distance);
+                assertEquals(expected, Long.bitCount(match.hash ^ query));
+            }
+        }
+    }
+
+    @Test
+    public void addIgnoresDuplicates() {
+        BkTree tree = new BkTree();
+        assertTrue(tree.add(0x1234L));
+        assertFalse(tree.add(0x1234L));
+        assertEquals(1, tree.size());
+    }
+
+    @Test
+    public void removedHashesAreSkippedButStillRoute() {
+        BkTree tree = new BkTree();
+        long root = 0L;
+        long near = 0b1L;        // 1 bit from the query below
+        long farther = 0b1110L;  // 3 bits, filed under the removed nodes
+        tree.add(root);
+        tree.add(near);
+        tree.add(farther);
+
+        long query = 0b11L;
+        assertEquals(near, tree.nearest(query, RADIUS).hash);
+
+        assertTrue(tree.remove(near));
+        assertFalse(tree.remove(near));
+        assertTrue(tree.remove(root));
+        assertEquals(1, tree.size());
+        BkTree.Match next = tree.nearest(query, RADIUS);
+        assertEquals(farther, next.hash);
+        assertEquals(3, next.distance);
+
+        assertTrue(tree.remove(farther));
+        assertNull(tree.nearest(query, RADIUS));
+
+        // Adding a removed hash brings it back
+        assertTrue(tree.add(near));
+        assertEquals(near, tree.nearest(query, RADIUS).hash);
+        assertEquals(1, tree.size());
+    }
+
+    /**
+     * Build and query times against a linear scan, printed for comparison
+     * across changes. Only the results are asserted; timings vary by machine.
+     */
+    @Test
+    public void benchmarkBuildAndQuery() {
+        Random random = new Random(2);
+        long[] stored = randomHashes(random, HASHES);
+        long[] queries = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) queries[i] = nearby(random, stored[random.nextInt(stored.length)]);
+
+        // Warm up the JIT on both paths before timing
+        BkTree tree = build(stored);
+        for (long query : queries) {
+            tree.nearest(query, RADIUS);
+            linearNearest(stored, query, RADIUS);
+        }
+
+        long start = System.nanoTime();
+        tree = build(stored);
+        long buildNanos = System.nanoTime() - start;
+
+        int treeFound = 0;
+        start = System.nanoTime();
+        for (long query : queries) {
+            if (tree.nearest(query, RADIUS) != null) treeFound++;
+        }
+        long treeNanos = System.nanoTime() - start;
+
+        int linearFound = 0;
+        start = System.nanoTime();
+        for (long query : queries) {
+            if (linearNearest(stored, query, RADIUS) <= RADIUS) linearFound++;
+        }
+        long linearNanos = System.nanoTime() - start;
+
+        System.out.printf("BkTree: build %d hashes %.1f ms; %d queries %.1f us each (linear scan %.1f us)%n",
+                HASHES, buildNanos / 1e6, QUERIES, treeNanos / 1e3 / QUERIES, linearNanos / 1e3 / QUERIES);
+        assertEquals(linearFound, treeFound);
+    }
+
+    private static BkTree build(long[] hashes) {
+        BkTree tree = new BkTree();
+        for (long hash : hashes) tree.add(hash);
+        return tree;
+    }
+
+    private static long[] randomHashes(Random random, int count) {
+        long[] hashes = new long[count];
+        for (int i = 0; i < count; i++) hashes[i] = random.nextLong();
+        return hashes;
+    }
+
+    /** The hash with 0 to 8 random bits flipped, so some queries fall outside the radius */
+    private static long nearby(Random random, long hash) {
+        int flips = random.nextInt(9);
+        for (int i = 0; i < flips; i++) hash ^= 1L << random.nextInt(64);
+        return hash;
+    }
+
+    private static int linearNearest(long[] hashes, long query, int maxDistance) {
+        int best = maxDistance + 1;
+        for (long hash : hashes) best = Math.min(best, Long.bitCount(hash ^ query));
+        return best;
+    }
+}